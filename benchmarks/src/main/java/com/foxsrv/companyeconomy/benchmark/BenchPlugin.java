@@ -0,0 +1,71 @@
+package com.foxsrv.companyeconomy.benchmark;
+
+import com.foxsrv.companyeconomy.CompanyEconomy;
+import com.foxsrv.companyeconomy.company.CompanyManager;
+import net.milkbowl.vault.economy.Economy;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+
+/*
+ * The plugin without onEnable: no commands, listeners or timers, so a
+ * benchmark drives exactly the code it measures.
+ */
+final class BenchPlugin extends CompanyEconomy {
+
+    private final YamlConfiguration config;
+    private final Economy economy = Stubs.economy();
+    private CompanyManager manager;
+
+    @SuppressWarnings("deprecation")
+    BenchPlugin(File dataFolder, YamlConfiguration config) {
+        super(new JavaPluginLoader(Stubs.server()),
+                new PluginDescriptionFile("CompanyEconomy", "benchmark",
+                        CompanyEconomy.class.getName()),
+                dataFolder, new File(dataFolder, "CompanyEconomy.jar"));
+        this.config = config;
+    }
+
+    // Benchmark defaults: no journal or history, no background flush, no log lines
+    static YamlConfiguration defaults() {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("storage.type", "yaml");
+        config.set("journal.enabled", false);
+        config.set("history.enabled", false);
+        config.set("persistence.flush-interval-seconds", 3600);
+        config.set("loading.parallel", true);
+        config.set("loading.lazy", false);
+        config.set("loading.log-each-company", false);
+        config.set("payroll.log-summary", false);
+        config.set("payroll.tick-budget-micros", 60_000_000L);
+        return config;
+    }
+
+    CompanyManager start() {
+        manager = new CompanyManager(this);
+        manager.loadCompanies();
+        return manager;
+    }
+
+    void stop() {
+        if (manager != null) manager.shutdown();
+    }
+
+    @Override
+    public FileConfiguration getConfig() {
+        return config;
+    }
+
+    @Override
+    public Economy getEconomy() {
+        return economy;
+    }
+
+    @Override
+    public CompanyManager getCompanyManager() {
+        return manager;
+    }
+}
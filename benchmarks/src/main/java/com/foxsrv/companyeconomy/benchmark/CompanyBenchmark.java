@@ -0,0 +1,81 @@
+package com.foxsrv.companyeconomy.benchmark;
+
+import com.foxsrv.companyeconomy.company.Company;
+import com.foxsrv.companyeconomy.company.CompanyPermission;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Per-company hot paths on one company of N employees
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompanyBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1000", "10000", "100000"})
+    public int employees;
+
+    private File dataFolder;
+    private BenchPlugin plugin;
+    private Company company;
+
+    // Members and non-members, in random order
+    private String[] names;
+    private UUID[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataFolder = Fixtures.dataFolder();
+        Fixtures.writeCompany(dataFolder, "bench", 0, employees);
+
+        plugin = new BenchPlugin(dataFolder, BenchPlugin.defaults());
+        company = plugin.start().getCompany("bench");
+
+        Random random = new Random(42);
+        names = new String[LOOKUPS];
+        ids = new UUID[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int player = random.nextInt(employees + employees / 10);
+            names[i] = Fixtures.playerName(player);
+            ids[i] = Fixtures.playerId(player);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        plugin.stop();
+        Fixtures.delete(dataFolder);
+    }
+
+    @Benchmark
+    public boolean hasPermission() {
+        UUID id = ids[next++ & (LOOKUPS - 1)];
+        return company.hasPermission(id, CompanyPermission.HIRE);
+    }
+
+    // Command path: name -> uuid through the shared name index first
+    @Benchmark
+    public boolean hasPermissionByName() {
+        String name = names[next++ & (LOOKUPS - 1)];
+        return company.hasPermission(name, CompanyPermission.HIRE);
+    }
+
+    @Benchmark
+    public void deposit() {
+        company.deposit(1.0);
+    }
+
+    @Benchmark
+    public boolean tryWithdraw() {
+        return company.tryWithdraw(1.0);
+    }
+}
@@ -0,0 +1,102 @@
+package com.foxsrv.companyeconomy.benchmark;
+
+import com.foxsrv.companyeconomy.company.Company;
+import com.foxsrv.companyeconomy.company.CompanyManager;
+import com.foxsrv.companyeconomy.company.CompanyPermission;
+import com.foxsrv.companyeconomy.company.CompanyRanking;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Cross-company paths on N companies of EMPLOYEES members each
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompanyManagerBenchmark {
+
+    private static final int EMPLOYEES = 4;
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1000", "10000", "100000"})
+    public int companies;
+
+    private File dataFolder;
+    private BenchPlugin plugin;
+    private CompanyManager manager;
+
+    private UUID[] executors;
+    private String[] companyArgs;
+    private int[] pageOffsets;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataFolder = Fixtures.dataFolder();
+
+        for (int i = 0; i < companies; i++) {
+            Fixtures.writeCompany(dataFolder, Fixtures.companyName(i), i * EMPLOYEES, EMPLOYEES);
+        }
+
+        plugin = new BenchPlugin(dataFolder, BenchPlugin.defaults());
+        manager = plugin.start();
+
+        Random random = new Random(42);
+        executors = new UUID[LOOKUPS];
+        companyArgs = new String[LOOKUPS];
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            int player = random.nextInt(companies * EMPLOYEES);
+            executors[i] = Fixtures.playerId(player);
+            companyArgs[i] = Fixtures.companyName(player / EMPLOYEES);
+        }
+
+        pageOffsets = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            pageOffsets[i] = random.nextInt(companies / 10) * 10;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        plugin.stop();
+        Fixtures.delete(dataFolder);
+    }
+
+    // "/company hire <player>" without a company argument
+    @Benchmark
+    public Company resolveWithoutCompany() {
+        int i = next++ & (LOOKUPS - 1);
+        return manager.resolveCompanyForExecutor(executors[i], null, CompanyPermission.HIRE);
+    }
+
+    @Benchmark
+    public Company resolveWithCompany() {
+        int i = next++ & (LOOKUPS - 1);
+        return manager.resolveCompanyForExecutor(executors[i], companyArgs[i], CompanyPermission.HIRE);
+    }
+
+    // "/company top balance <page>" at a random page
+    @Benchmark
+    public List<CompanyRanking.Entry> topPage() {
+        int i = next++ & (LOOKUPS - 1);
+        return manager.getRanking().page(CompanyRanking.Order.BALANCE, pageOffsets[i], 10);
+    }
+
+    // Full reload of every company file
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int loadCompanies() {
+        manager.loadCompanies();
+        return manager.getCompanies().size();
+    }
+}
@@ -0,0 +1,107 @@
+package com.foxsrv.companyeconomy.benchmark;
+
+import com.foxsrv.companyeconomy.player.PlayerNameIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.UUID;
+
+/*
+ * Writes company files the way the plugin stores them, so loading goes
+ * through the real YAML store.
+ */
+final class Fixtures {
+
+    static final int GROUPS = 5;
+
+    private Fixtures() {
+    }
+
+    static File dataFolder() {
+        try {
+            return Files.createTempDirectory("companyeconomy-bench").toFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String companyName(int index) {
+        return "company" + index;
+    }
+
+    static String playerName(int index) {
+        return "player" + index;
+    }
+
+    // Never joined: the provisional uuid the plugin gives a name it does not know
+    static UUID playerId(int index) {
+        return PlayerNameIndex.offlineUniqueId(playerName(index));
+    }
+
+    // Players [firstPlayer, firstPlayer + employees) spread over GROUPS groups
+    static void writeCompany(File dataFolder, String name, int firstPlayer, int employees) {
+
+        StringBuilder yaml = new StringBuilder(employees * 80 + 512);
+
+        yaml.append("displayName: ").append(name).append('\n');
+        yaml.append("balance: 1.0E12\n");
+        yaml.append("commands:\n  on-fire:\n  - say %player% has been fired!\n");
+        yaml.append("groups:\n");
+
+        for (int group = 1; group <= GROUPS; group++) {
+            boolean manager = group <= 2;
+            yaml.append("  '").append(group).append("':\n");
+            yaml.append("    tag: Role").append(group).append('\n');
+            yaml.append("    salary: ").append(10.0 * group).append('\n');
+            yaml.append("    permissions:\n");
+            yaml.append("      can-hire: ").append(manager).append('\n');
+            yaml.append("      can-fire: ").append(manager).append('\n');
+            yaml.append("      can-deposit: true\n");
+            yaml.append("      can-withdraw: ").append(group == 1).append('\n');
+        }
+
+        yaml.append("members:\n");
+        for (int i = 0; i < employees; i++) {
+            int player = firstPlayer + i;
+            yaml.append("  ").append(playerId(player)).append(":\n");
+            yaml.append("    name: ").append(playerName(player)).append('\n');
+            yaml.append("    group: ").append(1 + player % GROUPS).append('\n');
+        }
+
+        File folder = new File(dataFolder, "companies");
+        folder.mkdirs();
+
+        try {
+            Files.write(new File(folder, name + ".yml").toPath(),
+                    yaml.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void delete(File folder) {
+        try {
+            Files.walkFileTree(folder.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.foxsrv.companyeconomy.benchmark;
+
+import com.foxsrv.companyeconomy.company.SalaryTask;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+// One pay period of every company with every employee online, PER_COMPANY employees per company
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayrollBenchmark {
+
+    private static final int PER_COMPANY = 100;
+
+    @Param({"1000", "10000", "100000"})
+    public int employees;
+
+    private static final long INTERVAL = 30L * 60L * 1000L;
+
+    private File dataFolder;
+    private BenchPlugin plugin;
+    private SalaryTask task;
+    private long clock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataFolder = Fixtures.dataFolder();
+
+        for (int i = 0; i * PER_COMPANY < employees; i++) {
+            int size = Math.min(PER_COMPANY, employees - i * PER_COMPANY);
+            Fixtures.writeCompany(dataFolder, Fixtures.companyName(i), i * PER_COMPANY, size);
+        }
+
+        for (int i = 0; i < employees; i++) {
+            Stubs.ONLINE.put(Fixtures.playerId(i), Stubs.player(Fixtures.playerName(i)));
+        }
+
+        plugin = new BenchPlugin(dataFolder, BenchPlugin.defaults());
+        plugin.start();
+
+        task = new SalaryTask(plugin);
+        clock = System.currentTimeMillis();
+        task.tick(clock);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        plugin.stop();
+        Stubs.ONLINE.clear();
+        Fixtures.delete(dataFolder);
+    }
+
+    // One interval later every company is due once; the budget fits the whole batch
+    @Benchmark
+    public SalaryTask payrollCycle() {
+        clock += INTERVAL;
+        task.tick(clock);
+        return task;
+    }
+}
@@ -0,0 +1,123 @@
+package com.foxsrv.companyeconomy.benchmark;
+
+import com.foxsrv.companyeconomy.player.PlayerNameIndex;
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/*
+ * Minimal Server / Player / Economy implementations (dynamic proxies):
+ * only what the measured code paths call does something, everything
+ * else returns a default value.
+ */
+final class Stubs {
+
+    // Uuid -> online player, read by Server.getPlayer(UUID)
+    static final Map<UUID, Player> ONLINE = new ConcurrentHashMap<>();
+
+    private static final Logger LOGGER = Logger.getLogger("Minecraft");
+
+    private Stubs() {
+    }
+
+    static synchronized Server server() {
+
+        if (Bukkit.getServer() != null) return Bukkit.getServer();
+
+        BukkitScheduler scheduler = stub(BukkitScheduler.class, (method, args) -> null);
+
+        Server server = stub(Server.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getLogger":
+                    return LOGGER;
+                case "getName":
+                case "getVersion":
+                case "getBukkitVersion":
+                    return "benchmark";
+                case "isPrimaryThread":
+                    return true;
+                case "getScheduler":
+                    return scheduler;
+                case "getPlayer":
+                    return args[0] instanceof UUID ? ONLINE.get(args[0]) : null;
+                default:
+                    return null;
+            }
+        });
+
+        Bukkit.setServer(server);
+        return server;
+    }
+
+    static Player player(String name) {
+        UUID id = PlayerNameIndex.offlineUniqueId(name);
+
+        return stub(Player.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                    return name;
+                case "getUniqueId":
+                    return id;
+                case "isOnline":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    static Economy economy() {
+        return stub(Economy.class, (method, args) -> {
+            if (method.getName().equals("depositPlayer") || method.getName().equals("withdrawPlayer")) {
+                double amount = (Double) args[args.length - 1];
+                return new EconomyResponse(amount, 0.0, EconomyResponse.ResponseType.SUCCESS, null);
+            }
+            return method.getName().equals("isEnabled") ? Boolean.TRUE : null;
+        });
+    }
+
+    private interface Handler {
+        Object invoke(Method method, Object[] args);
+    }
+
+    private static <T> T stub(Class<T> type, Handler handler) {
+        Object proxy = Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{type},
+                (self, method, args) -> {
+                    switch (method.getName()) {
+                        case "hashCode":
+                            return System.identityHashCode(self);
+                        case "equals":
+                            return self == args[0];
+                        case "toString":
+                            return type.getSimpleName() + "Stub";
+                    }
+
+                    Object result = handler.invoke(method, args);
+                    return result != null ? result : defaultValue(method.getReturnType());
+                });
+
+        return type.cast(proxy);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0;
+        if (type == float.class) return 0.0f;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == char.class) return '\0';
+        return null;
+    }
+}
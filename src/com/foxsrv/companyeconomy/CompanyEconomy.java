@@ -1,17 +1,47 @@
 package com.foxsrv.companyeconomy;
 
+import com.foxsrv.companyeconomy.api.CompanyService;
 import com.foxsrv.companyeconomy.company.CompanyManager;
+import com.foxsrv.companyeconomy.company.CompanyServiceImpl;
+import com.foxsrv.companyeconomy.company.SalaryAccrual;
 import com.foxsrv.companyeconomy.company.SalaryTask;
+import com.foxsrv.companyeconomy.command.CommandDispatchQueue;
+import com.foxsrv.companyeconomy.command.CommandPipeline;
 import com.foxsrv.companyeconomy.command.CompanyCommand;
+import com.foxsrv.companyeconomy.metrics.Metrics;
+import com.foxsrv.companyeconomy.metrics.MetricsExporter;
+import com.foxsrv.companyeconomy.player.PlayerListener;
+import com.foxsrv.companyeconomy.player.PlayerNameIndex;
 import net.milkbowl.vault.economy.Economy;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.RegisteredServiceProvider;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
 
 public class CompanyEconomy extends JavaPlugin {
 
     private static CompanyEconomy instance;
     private Economy economy;
     private CompanyManager companyManager;
+    private SalaryTask salaryTask;
+    private SalaryAccrual salaryAccrual;
+    private CommandDispatchQueue commandQueue;
+    private CommandPipeline commandPipeline;
+    private final PlayerNameIndex playerNames = new PlayerNameIndex();
+    private final Metrics metrics = new Metrics();
+
+    public CompanyEconomy() {
+        super();
+    }
+
+    // Runs the plugin outside a server (benchmarks and tests)
+    protected CompanyEconomy(JavaPluginLoader loader, PluginDescriptionFile description,
+                             File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
 
     @Override
     public void onEnable() {
@@ -23,13 +53,66 @@ public class CompanyEconomy extends JavaPlugin {
             return;
         }
 
+        saveDefaultConfig();
+
+        commandQueue = new CommandDispatchQueue(this);
+        commandQueue.runTaskTimer(this, 1L, 1L);
+
+        // Before the companies: their rosters resolve names against it
+        playerNames.load(getServer().getOfflinePlayers());
+
         companyManager = new CompanyManager(this);
         companyManager.loadCompanies();
+        companyManager.recoverJournal();
+        companyManager.startWatching();
+
+        getServer().getServicesManager().register(CompanyService.class,
+                new CompanyServiceImpl(companyManager), this, ServicePriority.Normal);
+
+        // Lazy payroll: settled on join, on /company and by the online sweep
+        if (getConfig().getBoolean("payroll.accrual.enabled", false)) {
+            salaryAccrual = new SalaryAccrual(this);
+        }
+
+        getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
+
+        commandPipeline = new CommandPipeline(this);
 
         getCommand("company").setExecutor(new CompanyCommand(this));
         getCommand("company").setTabCompleter(new CompanyCommand(this));
 
-        new SalaryTask(this).runTaskTimer(this, 0L, 30 * 60 * 20L);
+        // Ticks every tick; each company pays when its schedule is due
+        salaryTask = new SalaryTask(this);
+        salaryTask.runTaskTimer(this, 1L, 1L);
+
+        long exportInterval = getConfig().getLong("metrics.export-interval-seconds", 15L) * 20L;
+        if (exportInterval > 0) {
+            new MetricsExporter(this).runTaskTimerAsynchronously(this, exportInterval, exportInterval);
+        }
+    }
+
+    @Override
+    public void onDisable() {
+        // Before the manager so settled withdrawals are still persisted
+        if (salaryTask != null) {
+            salaryTask.shutdown();
+        }
+
+        if (salaryAccrual != null) {
+            salaryAccrual.shutdown();
+        }
+
+        if (commandPipeline != null) {
+            commandPipeline.shutdown();
+        }
+
+        if (commandQueue != null) {
+            commandQueue.drain();
+        }
+
+        if (companyManager != null) {
+            companyManager.shutdown();
+        }
     }
 
     public static CompanyEconomy get() {
@@ -44,6 +127,27 @@ public class CompanyEconomy extends JavaPlugin {
         return companyManager;
     }
 
+    // Null unless payroll.accrual.enabled
+    public SalaryAccrual getSalaryAccrual() {
+        return salaryAccrual;
+    }
+
+    public CommandDispatchQueue getCommandQueue() {
+        return commandQueue;
+    }
+
+    public CommandPipeline getCommandPipeline() {
+        return commandPipeline;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public PlayerNameIndex getPlayerNames() {
+        return playerNames;
+    }
+
     private boolean setupEconomy() {
         RegisteredServiceProvider<Economy> rsp =
                 getServer().getServicesManager().getRegistration(Economy.class);
@@ -0,0 +1,52 @@
+package com.foxsrv.companyeconomy.api;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/*
+ * Entry point for other plugins, registered in Bukkit's ServicesManager:
+ *
+ *   CompanyService service = Bukkit.getServicesManager().load(CompanyService.class);
+ *
+ * Every method may be called from any thread. The balance itself is a
+ * compare-and-set update on long minor units; recording it (ranking,
+ * journal, history) takes short locks shared with the rest of the
+ * plugin, so a call can wait briefly behind another thread. The returned
+ * futures are already complete unless the company still has to be read
+ * from storage (lazy loading), which happens off the calling thread.
+ */
+public interface CompanyService {
+
+    Optional<CompanySnapshot> getCompany(String name);
+
+    List<String> getCompanyNames();
+
+    List<CompanySnapshot> getCompaniesOf(UUID playerId);
+
+    List<CompanySnapshot> getCompaniesOf(String playerName);
+
+    CompletableFuture<TransactionResult> deposit(String company, long amountMinor);
+
+    // Fails with INSUFFICIENT_FUNDS instead of going below zero
+    CompletableFuture<TransactionResult> withdraw(String company, long amountMinor);
+
+    default CompletableFuture<TransactionResult> deposit(String company, double amount) {
+        try {
+            return deposit(company, Money.toMinor(amount));
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return CompletableFuture.completedFuture(
+                    new TransactionResult(TransactionResult.Status.INVALID_AMOUNT, 0L));
+        }
+    }
+
+    default CompletableFuture<TransactionResult> withdraw(String company, double amount) {
+        try {
+            return withdraw(company, Money.toMinor(amount));
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return CompletableFuture.completedFuture(
+                    new TransactionResult(TransactionResult.Status.INVALID_AMOUNT, 0L));
+        }
+    }
+}
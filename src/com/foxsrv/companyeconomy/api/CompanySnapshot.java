@@ -0,0 +1,45 @@
+package com.foxsrv.companyeconomy.api;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+ * Read-only copy of a company, safe to keep and read on any thread.
+ */
+public final class CompanySnapshot {
+
+    private final String name;
+    private final String displayName;
+    private final long balanceMinor;
+    private final Map<UUID, Integer> members;
+
+    public CompanySnapshot(String name, String displayName, long balanceMinor,
+                           Map<UUID, Integer> members) {
+        this.name = name;
+        this.displayName = displayName;
+        this.balanceMinor = balanceMinor;
+        this.members = Collections.unmodifiableMap(members);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public long getBalanceMinor() {
+        return balanceMinor;
+    }
+
+    public double getBalance() {
+        return Money.toMajor(balanceMinor);
+    }
+
+    // Player uuid -> groupId
+    public Map<UUID, Integer> getMembers() {
+        return members;
+    }
+}
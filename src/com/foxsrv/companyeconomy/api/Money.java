@@ -0,0 +1,30 @@
+package com.foxsrv.companyeconomy.api;
+
+/*
+ * Company balances are kept as long minor units (cents).
+ * Conversions are range-checked so a huge double never wraps around.
+ */
+public final class Money {
+
+    public static final int SCALE = 100;
+
+    // Largest amount whose minor-unit value still fits in a long
+    private static final double MAX_MAJOR = Long.MAX_VALUE / (double) SCALE;
+
+    private Money() {
+    }
+
+    public static long toMinor(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Amount is not a number: " + amount);
+        }
+        if (Math.abs(amount) >= MAX_MAJOR) {
+            throw new ArithmeticException("Amount out of range: " + amount);
+        }
+        return Math.round(amount * SCALE);
+    }
+
+    public static double toMajor(long minor) {
+        return minor / (double) SCALE;
+    }
+}
@@ -0,0 +1,37 @@
+package com.foxsrv.companyeconomy.api;
+
+public final class TransactionResult {
+
+    public enum Status {
+        SUCCESS,
+        COMPANY_NOT_FOUND,
+        INVALID_AMOUNT,
+        INSUFFICIENT_FUNDS,
+        OVERFLOW
+    }
+
+    private final Status status;
+    private final long balanceMinor;
+
+    public TransactionResult(Status status, long balanceMinor) {
+        this.status = status;
+        this.balanceMinor = balanceMinor;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == Status.SUCCESS;
+    }
+
+    // Balance after the operation; unchanged on failure, 0 if the company is unknown
+    public long getBalanceMinor() {
+        return balanceMinor;
+    }
+
+    public double getBalance() {
+        return Money.toMajor(balanceMinor);
+    }
+}
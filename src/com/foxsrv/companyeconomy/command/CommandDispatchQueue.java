@@ -0,0 +1,153 @@
+package com.foxsrv.companyeconomy.command;
+
+import com.foxsrv.companyeconomy.CompanyEconomy;
+import com.foxsrv.companyeconomy.metrics.LatencyHistogram;
+import com.foxsrv.companyeconomy.metrics.Metrics;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Console commands from company files (on-hire, on-fire, ...).
+ *
+ * Commands are queued and dispatched from the main thread, at most
+ * commands.max-per-tick per tick, so a mass hire cannot run hundreds of
+ * console commands in one tick.
+ */
+public class CommandDispatchQueue extends BukkitRunnable {
+
+    private final CompanyEconomy plugin;
+    private final int maxPerTick;
+    private final boolean logBacklog;
+
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    private final LatencyHistogram latency;
+    private final LatencyHistogram dispatchTime;
+    private final LongAdder failed;
+
+    // Current backlog (queue not empty at the end of a tick)
+    private int backlogTicks;
+    private int backlogDispatched;
+
+    public CommandDispatchQueue(CompanyEconomy plugin) {
+        this.plugin = plugin;
+        this.maxPerTick = Math.max(1, plugin.getConfig().getInt("commands.max-per-tick", 20));
+        this.logBacklog = plugin.getConfig().getBoolean("commands.log-backlog", true);
+
+        Metrics metrics = plugin.getMetrics();
+        this.latency = metrics.timer("command_queue_latency_seconds",
+                "Time company commands wait in the dispatch queue");
+        this.dispatchTime = metrics.timer("command_dispatch_seconds",
+                "Time to run one queued console command");
+        this.failed = metrics.counter("command_failures_total",
+                "Queued console commands that threw");
+        metrics.gauge("command_queue_depth", "Console commands waiting in the queue", depth::get);
+    }
+
+    public void enqueue(String command) {
+        queue.add(new Pending(command, System.nanoTime()));
+        maxDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+    }
+
+    @Override
+    public void run() {
+
+        int count = 0;
+        Pending pending;
+
+        while (count < maxPerTick && (pending = queue.poll()) != null) {
+            dispatch(pending);
+            count++;
+        }
+
+        if (!queue.isEmpty()) {
+            backlogTicks++;
+            backlogDispatched += count;
+            return;
+        }
+
+        if (backlogTicks > 0) {
+            if (logBacklog) {
+                plugin.getLogger().info(String.format(
+                        "Command backlog drained: %d command(s) over %d tick(s), max latency %.1f ms",
+                        backlogDispatched + count, backlogTicks + 1, getMaxLatencyMillis()));
+            }
+            backlogTicks = 0;
+            backlogDispatched = 0;
+        }
+    }
+
+    // Runs everything still queued; called on disable
+    public void drain() {
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            dispatch(pending);
+        }
+    }
+
+    private void dispatch(Pending pending) {
+
+        depth.decrementAndGet();
+
+        long start = System.nanoTime();
+        latency.record(start - pending.enqueuedAt);
+
+        try {
+            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), pending.command);
+        } catch (RuntimeException e) {
+            failed.increment();
+            plugin.getLogger().warning("Company command failed: /" + pending.command
+                    + " (" + e.getMessage() + ")");
+        }
+
+        dispatchTime.record(System.nanoTime() - start);
+    }
+
+    /*
+     * =========================
+     *         METRICS
+     * =========================
+     */
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxDepth.get();
+    }
+
+    public long getDispatchedCount() {
+        return latency.getCount();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public double getAverageLatencyMillis() {
+        return latency.getMean() / 1_000_000.0;
+    }
+
+    public double getMaxLatencyMillis() {
+        return latency.getMax() / 1_000_000.0;
+    }
+
+    private static final class Pending {
+
+        private final String command;
+        private final long enqueuedAt;
+
+        private Pending(String command, long enqueuedAt) {
+            this.command = command;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.foxsrv.companyeconomy.command;
+
+import com.foxsrv.companyeconomy.CompanyEconomy;
+import com.foxsrv.companyeconomy.metrics.LatencyHistogram;
+import com.foxsrv.companyeconomy.metrics.Metrics;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Runs /company subcommands off the main thread.
+ *
+ * A command is parsed and validated on a worker thread against the
+ * current company state (rosters, groups and balances are safe to read
+ * from any thread). The worker returns the commit step: a short task run
+ * on the main thread that re-checks what may have changed meanwhile,
+ * applies the change and sends the reply. Commands are handled one at a
+ * time and their commit steps run in the same order, so a player's
+ * commands apply in the order they were typed.
+ *
+ * With commands.async-economy the Vault calls of deposit and withdraw run
+ * on the worker too (only for economy plugins that are thread-safe).
+ * With commands.async false everything runs inline, as before.
+ */
+public class CommandPipeline {
+
+    // Validation on the worker; returns the main-thread commit step, or null
+    @FunctionalInterface
+    public interface Stage {
+        Runnable run();
+    }
+
+    private final CompanyEconomy plugin;
+    private final ExecutorService executor;
+    private final boolean asyncEconomy;
+    private final int maxPending;
+
+    // Sender name -> commands submitted and not replied to yet (main thread only)
+    private final Map<String, Integer> pending = new HashMap<>();
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final LatencyHistogram latency;
+    private final LongAdder rejected;
+
+    public CommandPipeline(CompanyEconomy plugin) {
+        this.plugin = plugin;
+        this.asyncEconomy = plugin.getConfig().getBoolean("commands.async-economy", false);
+        this.maxPending = Math.max(1, plugin.getConfig().getInt("commands.max-pending-per-player", 5));
+
+        if (plugin.getConfig().getBoolean("commands.async", true)) {
+            this.executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "CompanyEconomy-Commands");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+        }
+
+        Metrics metrics = plugin.getMetrics();
+        this.latency = metrics.timer("command_pipeline_seconds",
+                "Time from /company to its reply, worker and commit step included");
+        this.rejected = metrics.counter("command_pipeline_rejected_total",
+                "/company commands refused because the sender had too many pending");
+        metrics.gauge("command_pipeline_pending", "/company commands waiting for their reply", depth::get);
+    }
+
+    // Whether Vault calls may run on the worker
+    public boolean isEconomyAsync() {
+        return executor != null && asyncEconomy;
+    }
+
+    // Called on the main thread
+    public void submit(CommandSender sender, Stage stage) {
+
+        if (executor == null) {
+            Runnable commit = stage.run();
+            if (commit != null) commit.run();
+            return;
+        }
+
+        String key = sender.getName();
+        int count = pending.getOrDefault(key, 0);
+
+        if (count >= maxPending) {
+            rejected.increment();
+            sender.sendMessage(ChatColor.RED + "Please wait for your previous commands to finish.");
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            executor.execute(() -> {
+                Runnable commit = runStage(sender, stage);
+                if (!plugin.isEnabled()) return;
+
+                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    done(key);
+                    if (commit != null) commit.run();
+                    latency.record(System.nanoTime() - start);
+                });
+            });
+        } catch (RejectedExecutionException closed) {
+            return;   // disabling
+        }
+
+        pending.put(key, count + 1);
+        depth.incrementAndGet();
+    }
+
+    private Runnable runStage(CommandSender sender, Stage stage) {
+        try {
+            return stage.run();
+        } catch (RuntimeException e) {
+            plugin.getLogger().warning("Company command of " + sender.getName() + " failed: " + e.getMessage());
+            return () -> sender.sendMessage(ChatColor.RED + "Command failed, see the console.");
+        }
+    }
+
+    private void done(String key) {
+        depth.decrementAndGet();
+        pending.computeIfPresent(key, (name, count) -> count > 1 ? count - 1 : null);
+    }
+
+    // Commit step that only sends lines
+    public static Runnable reply(CommandSender sender, String... lines) {
+        return () -> {
+            for (String line : lines) {
+                sender.sendMessage(line);
+            }
+        };
+    }
+
+    public static Runnable reply(CommandSender sender, List<String> lines) {
+        return reply(sender, lines.toArray(new String[0]));
+    }
+
+    // Lets validated commands finish; their commit steps are dropped. Called on disable
+    public void shutdown() {
+
+        if (executor == null) return;
+
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                plugin.getLogger().severe("Company commands were still running on shutdown.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,36 +1,82 @@
 package com.foxsrv.companyeconomy.command;
 
 import com.foxsrv.companyeconomy.CompanyEconomy;
+import com.foxsrv.companyeconomy.api.Money;
 import com.foxsrv.companyeconomy.company.Company;
 import com.foxsrv.companyeconomy.company.CompanyManager;
+import com.foxsrv.companyeconomy.company.CompanyPermission;
+import com.foxsrv.companyeconomy.company.CompanyRanking;
+import com.foxsrv.companyeconomy.company.MemberView;
+import com.foxsrv.companyeconomy.storage.CompanyHistory;
+import com.foxsrv.companyeconomy.storage.SqliteCompanyStore;
+import com.foxsrv.companyeconomy.storage.Transaction;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.command.*;
 import org.bukkit.entity.Player;
 
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 public class CompanyCommand implements CommandExecutor, TabCompleter {
 
+    // Metric label for every other first argument is "info" (/company <company>)
+    private static final Set<String> SUBCOMMANDS = new HashSet<>(Arrays.asList(
+            "hire", "fire", "leave", "deposit", "withdraw",
+            "reload", "migrate", "stats", "info", "top", "history", "export", "import"));
+
+    private static final DateTimeFormatter HISTORY_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    private static final DateTimeFormatter ARCHIVE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneId.systemDefault());
+
     private final CompanyEconomy plugin;
     private final CompanyManager manager;
+    private final CommandPipeline pipeline;
+
+    // One export or import at a time
+    private final AtomicBoolean archiveRunning = new AtomicBoolean();
 
     public CompanyCommand(CompanyEconomy plugin) {
         this.plugin = plugin;
         this.manager = plugin.getCompanyManager();
+        this.pipeline = plugin.getCommandPipeline();
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command,
                              String label, String[] args) {
 
-        if (args.length == 0) {
-            return handleInfo(sender, null);
+        String sub = args.length == 0 ? "info" : args[0].toLowerCase();
+        long start = System.nanoTime();
+
+        // Accrued salary is settled first, so balances shown are current
+        if (sender instanceof Player && plugin.getSalaryAccrual() != null) {
+            plugin.getSalaryAccrual().settle((Player) sender);
         }
 
-        String sub = args[0].toLowerCase();
+        // Main-thread time only; see CommandPipeline for the time to reply
+        try {
+            return dispatch(sender, args, sub);
+        } finally {
+            plugin.getMetrics().timer("command_seconds", "Main-thread time of each /company subcommand",
+                    "command", SUBCOMMANDS.contains(sub) ? sub : "info")
+                    .record(System.nanoTime() - start);
+        }
+    }
+
+    private boolean dispatch(CommandSender sender, String[] args, String sub) {
+
+        if (args.length == 0) {
+            return handleInfo(sender, null, args, 0);
+        }
 
         switch (sub) {
             case "hire": return handleHire(sender, args);
@@ -39,10 +85,16 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
             case "deposit": return handleDeposit(sender, args);
             case "withdraw": return handleWithdraw(sender, args);
             case "reload": return handleReload(sender);
-            case "info": return handleInfo(sender, args.length >= 2 ? args[1] : null);
+            case "migrate": return handleMigrate(sender);
+            case "stats": return handleStats(sender, args);
+            case "top": return handleTop(sender, args);
+            case "history": return handleHistory(sender, args);
+            case "export": return handleExport(sender, args);
+            case "import": return handleImport(sender, args);
+            case "info": return handleInfo(sender, args.length >= 2 ? args[1] : null, args, 2);
             default:
                 Company company = manager.getCompany(args[0]);
-                if (company != null) return handleInfo(sender, args[0]);
+                if (company != null) return handleInfo(sender, args[0], args, 1);
                 sender.sendMessage(ChatColor.RED + "Unknown subcommand.");
                 return true;
         }
@@ -50,7 +102,16 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
 
     /* ========================== INFO ========================== */
 
-    private boolean handleInfo(CommandSender sender, String companyName) {
+    // /company info <company> [page] [--role <role>]; rendered on the worker
+    private boolean handleInfo(CommandSender sender, String companyName,
+                               String[] args, int optionsFrom) {
+
+        pipeline.submit(sender, () ->
+                CommandPipeline.reply(sender, info(companyName, args, optionsFrom)));
+        return true;
+    }
+
+    private List<String> info(String companyName, String[] args, int optionsFrom) {
 
         Company company = (companyName != null)
                 ? manager.getCompany(companyName)
@@ -59,30 +120,70 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
                 .findFirst().orElse(null);
 
         if (company == null) {
-            sender.sendMessage(ChatColor.RED + "Company not found.");
-            return true;
+            return Collections.singletonList(ChatColor.RED + "Company not found.");
         }
 
-        sender.sendMessage(ChatColor.GOLD + "=== " + company.getDisplayName() + " ===");
-        sender.sendMessage(ChatColor.YELLOW + "Balance: "
-                + ChatColor.GREEN + "$" + company.getBalance());
+        int page = 1;
+        String role = null;
 
-        sender.sendMessage(ChatColor.YELLOW + "Members:");
+        for (int i = optionsFrom; i < args.length; i++) {
 
-        for (Map.Entry<String, Integer> entry : company.getEmployees().entrySet()) {
+            String option = args[i];
 
-            String playerName = entry.getKey();
-            int group = entry.getValue();
+            if (option.equalsIgnoreCase("--role") && i + 1 < args.length) {
+                role = args[++i];
+            } else if (option.regionMatches(true, 0, "--role=", 0, 7)) {
+                role = option.substring(7);
+            } else {
+                try {
+                    page = Integer.parseInt(option);
+                } catch (NumberFormatException e) {
+                    return Collections.singletonList(ChatColor.RED +
+                            "Usage: /company info <company> [page] [--role <role>]");
+                }
+            }
+        }
+
+        int group = -1;
+        if (role != null) {
+            group = company.getGroupIdByName(role);
+            if (group == -1) {
+                return Collections.singletonList(ChatColor.RED + "Invalid role.");
+            }
+        }
+
+        MemberView members = company.getMemberView();
+
+        int pageSize = Math.max(1, plugin.getConfig().getInt("info.page-size", 10));
+        int total = members.count(group);
+        int pages = Math.max(1, (total + pageSize - 1) / pageSize);
+        page = Math.max(1, Math.min(page, pages));
+
+        List<String> lines = new ArrayList<>(pageSize + 4);
 
-            String role = company.getGroupTags().stream()
-                    .filter(tag -> company.getGroupIdByName(tag) == group)
-                    .findFirst().orElse("Unknown");
+        lines.add(ChatColor.GOLD + "=== " + company.getDisplayName() + " ===");
+        lines.add(ChatColor.YELLOW + "Balance: "
+                + ChatColor.GREEN + "$" + company.getBalance());
+
+        lines.add(ChatColor.YELLOW + "Members"
+                + (role != null ? " (" + company.getGroupTag(group) + ")" : "")
+                + ": " + ChatColor.GRAY + total
+                + (pages > 1 ? ChatColor.YELLOW + " - page " + page + "/" + pages : ""));
+
+        lines.addAll(members.lines(group, (page - 1) * pageSize, pageSize));
 
-            sender.sendMessage(ChatColor.GRAY + "- "
-                    + playerName + ChatColor.DARK_GRAY + " (" + role + ")");
+        if (page < pages) {
+            lines.add(ChatColor.DARK_GRAY + "/company info " + company.getName()
+                    + " " + (page + 1) + (role != null ? " --role " + role : ""));
         }
 
-        return true;
+        return lines;
+    }
+
+    // Null while the company is still registered; a reload may have replaced it
+    private String gone(Company company) {
+        return manager.getCompany(company.getName()) == company
+                ? null : ChatColor.RED + "Company not found.";
     }
 
     /* ========================== HIRE ========================== */
@@ -98,37 +199,58 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
+        UUID executorId = executor.getUniqueId();
         String targetName = args[1];
         String companyName = args[2];
         String roleName = args[3];
 
-        Company company = manager.getCompany(companyName);
+        pipeline.submit(sender, () -> {
+
+            Company company = manager.getCompany(companyName);
+            int targetGroup = company == null ? -1 : company.getGroupIdByName(roleName);
+
+            String error = checkHire(company, executorId, targetName, targetGroup);
+            if (error != null) return CommandPipeline.reply(sender, error);
+
+            return () -> {
+                // Again: the roster may have changed since
+                String stale = gone(company);
+                if (stale == null) stale = checkHire(company, executorId, targetName, targetGroup);
+
+                if (stale != null) {
+                    sender.sendMessage(stale);
+                    return;
+                }
+
+                company.addEmployee(targetName, targetGroup);
+                company.executeGroupCommands("on-hire", targetName, targetGroup);
+
+                sender.sendMessage(ChatColor.GREEN + "Player hired.");
+            };
+        });
+
+        return true;
+    }
+
+    private String checkHire(Company company, UUID executorId, String targetName, int targetGroup) {
 
         if (company == null ||
-                !company.hasPermission(executor.getName(), "can-hire") ||
-                !company.isEmployee(executor.getName())) {
-            executor.sendMessage(ChatColor.RED + "No permission.");
-            return true;
+                !company.hasPermission(executorId, CompanyPermission.HIRE) ||
+                !company.isEmployee(executorId)) {
+            return ChatColor.RED + "No permission.";
         }
 
         if (company.isEmployee(targetName)) {
-            executor.sendMessage(ChatColor.RED + "Already employed.");
-            return true;
+            return ChatColor.RED + "Already employed.";
         }
 
-        int executorGroup = company.getEmployeeGroup(executor.getName());
-        int targetGroup = company.getGroupIdByName(roleName);
+        int executorGroup = company.getEmployeeGroup(executorId);
 
         if (targetGroup == -1 || executorGroup >= targetGroup) {
-            executor.sendMessage(ChatColor.RED + "Invalid role.");
-            return true;
+            return ChatColor.RED + "Invalid role.";
         }
 
-        company.addEmployee(targetName, targetGroup);
-        company.executeGroupCommands("on-hire", targetName, targetGroup);
-
-        executor.sendMessage(ChatColor.GREEN + "Player hired.");
-        return true;
+        return null;
     }
 
     /* ========================== FIRE ========================== */
@@ -144,28 +266,52 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
+        UUID executorId = executor.getUniqueId();
         String targetName = args[1];
         String companyName = args[2];
 
-        Company company = manager.getCompany(companyName);
+        pipeline.submit(sender, () -> {
+
+            Company company = manager.getCompany(companyName);
+            UUID targetId = plugin.getPlayerNames().getUniqueId(targetName);
+
+            String error = checkFire(company, executorId, targetId);
+            if (error != null) return CommandPipeline.reply(sender, error);
+
+            return () -> {
+                String stale = gone(company);
+                if (stale == null) stale = checkFire(company, executorId, targetId);
+
+                if (stale != null) {
+                    sender.sendMessage(stale);
+                    return;
+                }
+
+                int targetGroup = company.getEmployeeGroup(targetId);
+
+                company.removeEmployee(targetId);
+                company.executeGlobalCommands("on-fire", targetName, targetGroup);
+
+                sender.sendMessage(ChatColor.GREEN + "Player fired.");
+            };
+        });
+
+        return true;
+    }
+
+    private String checkFire(Company company, UUID executorId, UUID targetId) {
 
         if (company == null ||
-                !company.hasPermission(executor.getName(), "can-fire") ||
-                !company.isEmployee(executor.getName())) {
-            executor.sendMessage(ChatColor.RED + "No permission.");
-            return true;
+                !company.hasPermission(executorId, CompanyPermission.FIRE) ||
+                !company.isEmployee(executorId)) {
+            return ChatColor.RED + "No permission.";
         }
 
-        if (!company.isEmployee(targetName)) {
-            executor.sendMessage(ChatColor.RED + "Not in company.");
-            return true;
+        if (company.getEmployeeGroup(targetId) == -1) {
+            return ChatColor.RED + "Not in company.";
         }
 
-        company.removeEmployee(targetName);
-        company.executeGlobalCommands("on-fire", targetName);
-
-        executor.sendMessage(ChatColor.GREEN + "Player fired.");
-        return true;
+        return null;
     }
 
     /* ========================== LEAVE ========================== */
@@ -181,18 +327,34 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
+        UUID playerId = player.getUniqueId();
+        String playerName = player.getName();
         String companyName = args[1];
-        Company company = manager.getCompany(companyName);
 
-        if (company == null || !company.isEmployee(player.getName())) {
-            player.sendMessage(ChatColor.RED + "You are not in this company.");
-            return true;
-        }
+        pipeline.submit(sender, () -> {
+
+            Company company = manager.getCompany(companyName);
+            String notMember = ChatColor.RED + "You are not in this company.";
+
+            if (company == null || !company.isEmployee(playerId)) {
+                return CommandPipeline.reply(sender, notMember);
+            }
+
+            return () -> {
+                int group = gone(company) != null ? -1 : company.getEmployeeGroup(playerId);
+
+                if (group == -1) {
+                    sender.sendMessage(notMember);
+                    return;
+                }
 
-        company.removeEmployee(player.getName());
-        company.executeGlobalCommands("on-fire", player.getName());
+                company.removeEmployee(playerId);
+                company.executeGlobalCommands("on-fire", playerName, group);
+
+                sender.sendMessage(ChatColor.RED + "You left the company.");
+            };
+        });
 
-        player.sendMessage(ChatColor.RED + "You left the company.");
         return true;
     }
 
@@ -210,40 +372,61 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
         }
 
         String companyName = args[1];
-        Company company = manager.getCompany(companyName);
+        String amountText = args[2];
 
-        if (company == null ||
-                !company.hasPermission(player.getName(), "can-deposit")) {
-            player.sendMessage(ChatColor.RED + "No permission.");
-            return true;
-        }
+        pipeline.submit(sender, () -> {
 
-        double amount;
-        try { amount = Double.parseDouble(args[2]); }
-        catch (Exception e) {
-            player.sendMessage(ChatColor.RED + "Invalid amount.");
-            return true;
-        }
+            Company company = manager.getCompany(companyName);
 
-        if (amount <= 0) {
-            player.sendMessage(ChatColor.RED + "Amount must be greater than 0.");
-            return true;
-        }
+            if (company == null ||
+                    !company.hasPermission(player.getUniqueId(), CompanyPermission.DEPOSIT)) {
+                return CommandPipeline.reply(sender, ChatColor.RED + "No permission.");
+            }
 
-        if (plugin.getEconomy().getBalance(player) < amount) {
-            player.sendMessage(ChatColor.RED + "Not enough money.");
-            return true;
-        }
+            // Whole cents, so Vault and the company move the same amount;
+            // NaN, Infinity and out-of-range amounts are rejected here
+            long amount;
+            try { amount = Money.toMinor(Double.parseDouble(amountText)); }
+            catch (Exception e) {
+                return CommandPipeline.reply(sender, ChatColor.RED + "Invalid amount.");
+            }
 
-        plugin.getEconomy().withdrawPlayer(player, amount);
-        company.deposit(amount);
+            if (amount <= 0) {
+                return CommandPipeline.reply(sender, ChatColor.RED + "Amount must be greater than 0.");
+            }
+
+            if (pipeline.isEconomyAsync()) {
+                return CommandPipeline.reply(sender, deposit(player, company, amount));
+            }
 
-        player.sendMessage(ChatColor.GREEN +
-                "Deposited $" + amount + " to " + company.getDisplayName());
+            return () -> sender.sendMessage(deposit(player, company, amount));
+        });
 
         return true;
     }
 
+    // Moves the money; on the worker only with commands.async-economy
+    private String deposit(Player player, Company company, long amount) {
+
+        String stale = gone(company);
+        if (stale != null) return stale;
+
+        if (!company.hasPermission(player.getUniqueId(), CompanyPermission.DEPOSIT)) {
+            return ChatColor.RED + "No permission.";
+        }
+
+        double major = Money.toMajor(amount);
+
+        if (plugin.getEconomy().getBalance(player) < major) {
+            return ChatColor.RED + "Not enough money.";
+        }
+
+        plugin.getEconomy().withdrawPlayer(player, major);
+        company.depositMinor(amount, player.getName());
+
+        return ChatColor.GREEN + "Deposited $" + major + " to " + company.getDisplayName();
+    }
+
     /* ========================== WITHDRAW ========================== */
 
     private boolean handleWithdraw(CommandSender sender, String[] args) {
@@ -258,51 +441,437 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
         }
 
         String companyName = args[1];
-        Company company = manager.getCompany(companyName);
+        String amountText = args[2];
 
-        if (company == null ||
-                !company.hasPermission(player.getName(), "can-withdraw")) {
-            player.sendMessage(ChatColor.RED + "No permission.");
+        pipeline.submit(sender, () -> {
+
+            Company company = manager.getCompany(companyName);
+
+            if (company == null ||
+                    !company.hasPermission(player.getUniqueId(), CompanyPermission.WITHDRAW)) {
+                return CommandPipeline.reply(sender, ChatColor.RED + "No permission.");
+            }
+
+            // Whole cents, so Vault and the company move the same amount;
+            // NaN, Infinity and out-of-range amounts are rejected here
+            long amount;
+            try { amount = Money.toMinor(Double.parseDouble(amountText)); }
+            catch (Exception e) {
+                return CommandPipeline.reply(sender, ChatColor.RED + "Invalid amount.");
+            }
+
+            if (amount <= 0) {
+                return CommandPipeline.reply(sender, ChatColor.RED + "Amount must be greater than 0.");
+            }
+
+            if (pipeline.isEconomyAsync()) {
+                return CommandPipeline.reply(sender, withdraw(player, company, amount));
+            }
+
+            return () -> sender.sendMessage(withdraw(player, company, amount));
+        });
+
+        return true;
+    }
+
+    // Moves the money; on the worker only with commands.async-economy
+    private String withdraw(Player player, Company company, long amount) {
+
+        String stale = gone(company);
+        if (stale != null) return stale;
+
+        if (!company.hasPermission(player.getUniqueId(), CompanyPermission.WITHDRAW)) {
+            return ChatColor.RED + "No permission.";
+        }
+
+        if (!company.tryWithdrawMinor(amount, player.getName())) {
+            return ChatColor.RED + "Not enough company funds.";
+        }
+
+        double major = Money.toMajor(amount);
+        plugin.getEconomy().depositPlayer(player, major);
+
+        return ChatColor.GREEN + "Withdrew $" + major + " from " + company.getDisplayName();
+    }
+
+    /* ========================== RELOAD ========================== */
+
+    private boolean handleReload(CommandSender sender) {
+
+        if (!sender.hasPermission("company.reload")) {
+            sender.sendMessage(ChatColor.RED + "No permission.");
             return true;
         }
 
-        double amount;
-        try { amount = Double.parseDouble(args[2]); }
-        catch (Exception e) {
-            player.sendMessage(ChatColor.RED + "Invalid amount.");
+        manager.reload();
+        sender.sendMessage(ChatColor.GREEN + "CompanyEconomy reloaded.");
+        return true;
+    }
+
+    /* ========================== MIGRATE ========================== */
+
+    private boolean handleMigrate(CommandSender sender) {
+
+        if (!sender.hasPermission("company.migrate")) {
+            sender.sendMessage(ChatColor.RED + "No permission.");
             return true;
         }
 
-        if (amount <= 0) {
-            player.sendMessage(ChatColor.RED + "Amount must be greater than 0.");
+        if (!(manager.getStore() instanceof SqliteCompanyStore)) {
+            sender.sendMessage(ChatColor.RED +
+                    "Set storage.type to sqlite or shared and restart before migrating.");
             return true;
         }
 
-        if (company.getBalance() < amount) {
-            player.sendMessage(ChatColor.RED + "Not enough company funds.");
+        sender.sendMessage(ChatColor.YELLOW + "Migrating company files...");
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                manager.getSaver().flush();
+                int migrated = manager.migrateFromYaml();
+
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    manager.reload();
+                    sender.sendMessage(ChatColor.GREEN + "Migrated "
+                            + migrated + " companies to SQLite.");
+                });
+
+            } catch (Exception e) {
+                plugin.getLogger().severe("Company migration failed.");
+                e.printStackTrace();
+
+                Bukkit.getScheduler().runTask(plugin, () ->
+                        sender.sendMessage(ChatColor.RED +
+                                "Migration failed: " + e.getMessage()));
+            }
+        });
+
+        return true;
+    }
+
+    /* ========================== EXPORT / IMPORT ========================== */
+
+    // /company export [file]
+    private boolean handleExport(CommandSender sender, String[] args) {
+
+        if (!sender.hasPermission("company.export")) {
+            sender.sendMessage(ChatColor.RED + "No permission.");
+            return true;
+        }
+
+        String name = args.length >= 2 ? args[1]
+                : "companies-" + ARCHIVE_TIME.format(Instant.now()) + ".ndjson.gz";
+
+        File file = archiveFile(name);
+        if (file == null) {
+            sender.sendMessage(ChatColor.RED + "Archives must be inside the archives folder.");
             return true;
         }
 
-        company.withdraw(amount);
-        plugin.getEconomy().depositPlayer(player, amount);
+        if (!archiveRunning.compareAndSet(false, true)) {
+            sender.sendMessage(ChatColor.RED + "An export or import is already running.");
+            return true;
+        }
+
+        sender.sendMessage(ChatColor.YELLOW + "Exporting companies to archives/" + file.getName() + "...");
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                manager.getSaver().flush();
+                int exported = manager.exportArchive(file);
 
-        player.sendMessage(ChatColor.GREEN +
-                "Withdrew $" + amount + " from " + company.getDisplayName());
+                Bukkit.getScheduler().runTask(plugin, () ->
+                        sender.sendMessage(ChatColor.GREEN + "Exported " + exported
+                                + " companies to archives/" + file.getName() + "."));
+
+            } catch (Exception e) {
+                plugin.getLogger().severe("Company export failed.");
+                e.printStackTrace();
+
+                Bukkit.getScheduler().runTask(plugin, () ->
+                        sender.sendMessage(ChatColor.RED + "Export failed: " + e.getMessage()));
+            } finally {
+                archiveRunning.set(false);
+            }
+        });
 
         return true;
     }
 
-    /* ========================== RELOAD ========================== */
+    // /company import <file> ; from the console: <file...> [--replace]
+    private boolean handleImport(CommandSender sender, String[] args) {
 
-    private boolean handleReload(CommandSender sender) {
+        if (!sender.hasPermission("company.import")) {
+            sender.sendMessage(ChatColor.RED + "No permission.");
+            return true;
+        }
 
-        if (!sender.hasPermission("company.reload")) {
+        boolean console = sender instanceof ConsoleCommandSender;
+        boolean replace = false;
+        List<File> files = new ArrayList<>();
+
+        for (int i = 1; i < args.length; i++) {
+
+            if (args[i].equalsIgnoreCase("--replace")) {
+                replace = true;
+                continue;
+            }
+
+            File file = archiveFile(args[i]);
+            if (file == null || !file.isFile()) {
+                sender.sendMessage(ChatColor.RED + "No archive named " + args[i] + " in the archives folder.");
+                return true;
+            }
+            files.add(file);
+        }
+
+        if (files.isEmpty()) {
+            sender.sendMessage(ChatColor.RED + "Usage: /company import <file>");
+            return true;
+        }
+
+        // Batch mode (several archives, overwriting companies) is console only
+        if (!console && (replace || files.size() > 1)) {
+            sender.sendMessage(ChatColor.RED + "Only the console can import several archives or use --replace.");
+            return true;
+        }
+
+        if (!archiveRunning.compareAndSet(false, true)) {
+            sender.sendMessage(ChatColor.RED + "An export or import is already running.");
+            return true;
+        }
+
+        sender.sendMessage(ChatColor.YELLOW + "Importing " + files.size() + " archive(s)...");
+
+        boolean overwrite = replace;
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                manager.getSaver().flush();
+                for (File file : files) {
+                    try {
+                        CompanyManager.ImportResult result = manager.importArchive(file, overwrite);
+
+                        Bukkit.getScheduler().runTask(plugin, () ->
+                                sender.sendMessage(ChatColor.GREEN + file.getName() + ": imported "
+                                        + result.getImported() + ", skipped " + result.getSkipped()
+                                        + " existing, " + result.getInvalid() + " invalid."));
+
+                    } catch (Exception e) {
+                        plugin.getLogger().severe("Company import of " + file.getName() + " failed.");
+                        e.printStackTrace();
+
+                        Bukkit.getScheduler().runTask(plugin, () ->
+                                sender.sendMessage(ChatColor.RED + file.getName()
+                                        + ": import failed: " + e.getMessage()));
+                    }
+                }
+            } finally {
+                archiveRunning.set(false);
+            }
+        });
+
+        return true;
+    }
+
+    // File inside <data folder>/archives, null when the name points elsewhere
+    private File archiveFile(String name) {
+
+        File folder = new File(plugin.getDataFolder(), "archives");
+        if (!folder.exists()) folder.mkdirs();
+
+        try {
+            File file = new File(folder, name).getCanonicalFile();
+            return file.getParentFile().equals(folder.getCanonicalFile()) ? file : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /* ========================== TOP ========================== */
+
+    // /company top [balance|members|payroll] [page]
+    private boolean handleTop(CommandSender sender, String[] args) {
+
+        CompanyRanking.Order order = CompanyRanking.Order.BALANCE;
+        int page = 1;
+
+        for (int i = 1; i < args.length; i++) {
+            try {
+                page = Integer.parseInt(args[i]);
+            } catch (NumberFormatException e) {
+                try {
+                    order = CompanyRanking.Order.valueOf(args[i].toUpperCase());
+                } catch (IllegalArgumentException invalid) {
+                    sender.sendMessage(ChatColor.RED +
+                            "Usage: /company top [balance|members|payroll] [page]");
+                    return true;
+                }
+            }
+        }
+
+        CompanyRanking ranking = manager.getRanking();
+
+        int pageSize = Math.max(1, plugin.getConfig().getInt("info.page-size", 10));
+        int total = ranking.size();
+        int pages = Math.max(1, (total + pageSize - 1) / pageSize);
+        page = Math.max(1, Math.min(page, pages));
+
+        String name = order.name().toLowerCase();
+
+        sender.sendMessage(ChatColor.GOLD + "=== Top companies by " + name + " ==="
+                + (pages > 1 ? ChatColor.YELLOW + " page " + page + "/" + pages : ""));
+
+        if (total == 0) {
+            sender.sendMessage(ChatColor.GRAY + "No companies.");
+        }
+
+        for (CompanyRanking.Entry entry : ranking.page(order, (page - 1) * pageSize, pageSize)) {
+            sender.sendMessage(ChatColor.YELLOW + "#" + entry.getPosition() + " "
+                    + ChatColor.WHITE + entry.getCompany().getDisplayName()
+                    + ChatColor.GRAY + " - " + ChatColor.GREEN + entry.getValue());
+        }
+
+        if (page < pages) {
+            sender.sendMessage(ChatColor.DARK_GRAY + "/company top " + name + " " + (page + 1));
+        }
+
+        return true;
+    }
+
+    /* ========================== HISTORY ========================== */
+
+    // /company history <company> [page]
+    private boolean handleHistory(CommandSender sender, String[] args) {
+
+        CompanyHistory history = manager.getHistory();
+
+        if (history == null) {
+            sender.sendMessage(ChatColor.RED + "Transaction history is disabled.");
+            return true;
+        }
+
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.RED + "Usage: /company history <company> [page]");
+            return true;
+        }
+
+        Company company = manager.getCompany(args[1]);
+
+        boolean allowed = company != null && (sender.hasPermission("company.history")
+                || (sender instanceof Player && company.isEmployee(((Player) sender).getUniqueId())));
+
+        if (!allowed) {
             sender.sendMessage(ChatColor.RED + "No permission.");
             return true;
         }
 
-        manager.reload();
-        sender.sendMessage(ChatColor.GREEN + "CompanyEconomy reloaded.");
+        int page = 1;
+        if (args.length >= 3) {
+            try {
+                page = Integer.parseInt(args[2]);
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Usage: /company history <company> [page]");
+                return true;
+            }
+        }
+
+        int pageSize = Math.max(1, plugin.getConfig().getInt("info.page-size", 10));
+        int requested = page;
+
+        // Recent pages come from memory once the log is open
+        if (history.isOpen(company.getName())) {
+            int pages = historyPages(history, company, pageSize);
+            int shown = Math.max(1, Math.min(requested, pages));
+
+            List<Transaction> recent = history.readMemory(company.getName(),
+                    (long) (shown - 1) * pageSize, pageSize);
+
+            if (recent != null) {
+                sendHistory(sender, company, recent, shown, pages);
+                return true;
+            }
+        }
+
+        // Older pages are decompressed from disk, and a log still opening is
+        // waited for, off the main thread
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                int pages = historyPages(history, company, pageSize);
+                int shown = Math.max(1, Math.min(requested, pages));
+
+                List<Transaction> older = history.read(company.getName(),
+                        (long) (shown - 1) * pageSize, pageSize);
+                Bukkit.getScheduler().runTask(plugin, () ->
+                        sendHistory(sender, company, older, shown, pages));
+
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not read the history of "
+                        + company.getName() + ": " + e.getMessage());
+
+                Bukkit.getScheduler().runTask(plugin, () ->
+                        sender.sendMessage(ChatColor.RED + "Could not read the history."));
+            }
+        });
+
+        return true;
+    }
+
+    private static int historyPages(CompanyHistory history, Company company, int pageSize) {
+        long total = history.count(company.getName());
+        return (int) Math.max(1, (total + pageSize - 1) / pageSize);
+    }
+
+    private void sendHistory(CommandSender sender, Company company,
+                             List<Transaction> transactions, int page, int pages) {
+
+        sender.sendMessage(ChatColor.GOLD + "=== " + company.getDisplayName() + " history ==="
+                + (pages > 1 ? ChatColor.YELLOW + " page " + page + "/" + pages : ""));
+
+        if (transactions.isEmpty()) {
+            sender.sendMessage(ChatColor.GRAY + "No transactions.");
+        }
+
+        for (Transaction transaction : transactions) {
+
+            long amount = transaction.getAmountMinor();
+
+            sender.sendMessage(ChatColor.DARK_GRAY + HISTORY_TIME.format(Instant.ofEpochMilli(transaction.getTime()))
+                    + " " + (amount >= 0 ? ChatColor.GREEN + "+$" : ChatColor.RED + "-$")
+                    + Money.toMajor(Math.abs(amount))
+                    + ChatColor.GRAY + " " + (transaction.getActor().isEmpty() ? "-" : transaction.getActor())
+                    + ChatColor.DARK_GRAY + " ($" + Money.toMajor(transaction.getBalanceMinor()) + ")");
+        }
+
+        if (page < pages) {
+            sender.sendMessage(ChatColor.DARK_GRAY + "/company history " + company.getName() + " " + (page + 1));
+        }
+    }
+
+    /* ========================== STATS ========================== */
+
+    // /company stats [filter]
+    private boolean handleStats(CommandSender sender, String[] args) {
+
+        if (!sender.hasPermission("company.stats")) {
+            sender.sendMessage(ChatColor.RED + "No permission.");
+            return true;
+        }
+
+        List<String> lines = plugin.getMetrics().describe(args.length >= 2 ? args[1] : null);
+
+        sender.sendMessage(ChatColor.GOLD + "=== CompanyEconomy stats ===");
+
+        if (lines.isEmpty()) {
+            sender.sendMessage(ChatColor.GRAY + "No matching metrics.");
+        }
+
+        for (String line : lines) {
+            int split = line.indexOf(": ");
+            sender.sendMessage(ChatColor.YELLOW + line.substring(0, split)
+                    + ChatColor.GRAY + line.substring(split));
+        }
+
         return true;
     }
 
@@ -320,10 +889,19 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
                 return filter(Arrays.asList(
                         "hire", "fire", "leave",
                         "deposit", "withdraw",
-                        "reload", "info"
+                        "reload", "migrate", "stats", "info", "top", "history", "export", "import"
                 ), args[0]);
             }
 
+            if (args[0].equalsIgnoreCase("import") && args.length >= 2) {
+                String[] archives = new File(plugin.getDataFolder(), "archives").list();
+                return archives == null ? Collections.emptyList()
+                        : filter(Arrays.asList(archives), args[args.length - 1]);
+            }
+
+            if (args[0].equalsIgnoreCase("top") && args.length == 2)
+                return filter(Arrays.asList("balance", "members", "payroll"), args[1]);
+
             if (!(sender instanceof Player))
                 return Collections.emptyList();
 
@@ -333,7 +911,7 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
             if (sub.equals("hire")) {
 
                 if (args.length == 2)
-                    return filter(getAllPlayerNames(), args[1]);
+                    return completePlayerNames(args[1]);
 
                 if (args.length == 3)
                     return filter(getExecutorCompanies(player), args[2]);
@@ -348,7 +926,7 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
             if (sub.equals("fire")) {
 
                 if (args.length == 2)
-                    return filter(getAllPlayerNames(), args[1]);
+                    return completePlayerNames(args[1]);
 
                 if (args.length == 3)
                     return filter(getExecutorCompanies(player), args[2]);
@@ -363,8 +941,23 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
             if (sub.equals("leave") && args.length == 2)
                 return filter(getExecutorCompanies(player), args[1]);
 
-            if (sub.equals("info") && args.length == 2)
-                return filter(manager.getCompanyNames(), args[1]);
+            if (sub.equals("history") && args.length == 2)
+                return filter(getExecutorCompanies(player), args[1]);
+
+            if (sub.equals("info")) {
+
+                if (args.length == 2)
+                    return filter(manager.getCompanyNames(), args[1]);
+
+                if (args.length >= 3 && args[args.length - 2].equalsIgnoreCase("--role")) {
+                    Company company = manager.getCompany(args[1]);
+                    if (company != null)
+                        return filter(company.getGroupTags(), args[args.length - 1]);
+                }
+
+                if (args.length >= 3)
+                    return filter(Collections.singletonList("--role"), args[args.length - 1]);
+            }
 
         } catch (Exception ignored) {}
 
@@ -374,24 +967,19 @@ public class CompanyCommand implements CommandExecutor, TabCompleter {
     /* ========================== HELPERS ========================== */
 
     private List<String> getExecutorCompanies(Player player) {
-        return manager.getCompanies().stream()
-                .filter(c -> c.isEmployee(player.getName()))
+        return manager.getCompaniesOf(player.getUniqueId()).stream()
                 .map(Company::getName)
-                .sorted()
                 .collect(Collectors.toList());
     }
 
-    private List<String> getAllPlayerNames() {
-        return Arrays.stream(Bukkit.getOfflinePlayers())
-                .map(OfflinePlayer::getName)
-                .filter(Objects::nonNull)
-                .sorted()
-                .collect(Collectors.toList());
+    private List<String> completePlayerNames(String current) {
+        int limit = plugin.getConfig().getInt("tab-complete.max-results", 50);
+        return plugin.getPlayerNames().complete(current, limit);
     }
 
     private List<String> filter(List<String> list, String current) {
         return list.stream()
-                .filter(s -> s.toLowerCase().startsWith(current.toLowerCase()))
+                .filter(s -> s.regionMatches(true, 0, current, 0, current.length()))
                 .sorted()
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,147 @@
+package com.foxsrv.companyeconomy.company;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.*;
+
+/*
+ * A console command from a company file, split once into literal text
+ * and placeholders so running it is a single StringBuilder pass.
+ *
+ * Placeholders: %player%, %company%, %role%, %salary%.
+ * Anything else between percent signs is kept as written.
+ */
+public final class CommandTemplate {
+
+    private enum Variable {
+        PLAYER("player"),
+        COMPANY("company"),
+        ROLE("role"),
+        SALARY("salary");
+
+        private final String key;
+
+        Variable(String key) {
+            this.key = key;
+        }
+
+        static Variable fromKey(String key) {
+            for (Variable variable : values()) {
+                if (variable.key.equalsIgnoreCase(key)) return variable;
+            }
+            return null;
+        }
+    }
+
+    // Alternating parts: String literals and Variable placeholders
+    private final Object[] parts;
+    private final int literalLength;
+
+    private CommandTemplate(Object[] parts, int literalLength) {
+        this.parts = parts;
+        this.literalLength = literalLength;
+    }
+
+    /*
+     * =========================
+     *         COMPILE
+     * =========================
+     */
+
+    static CommandTemplate compile(String command) {
+
+        List<Object> parts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int literalLength = 0;
+
+        int i = 0;
+        while (i < command.length()) {
+
+            char c = command.charAt(i);
+            int end = c == '%' ? command.indexOf('%', i + 1) : -1;
+            Variable variable = end == -1 ? null : Variable.fromKey(command.substring(i + 1, end));
+
+            if (variable == null) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+
+            if (literal.length() > 0) {
+                parts.add(literal.toString());
+                literalLength += literal.length();
+                literal.setLength(0);
+            }
+
+            parts.add(variable);
+            i = end + 1;
+        }
+
+        if (literal.length() > 0) {
+            parts.add(literal.toString());
+            literalLength += literal.length();
+        }
+
+        return new CommandTemplate(parts.toArray(), literalLength);
+    }
+
+    // type (on-hire, on-fire, ...) -> templates, for a "commands" section
+    static Map<String, List<CommandTemplate>> compileAll(ConfigurationSection commands) {
+
+        if (commands == null) return Collections.emptyMap();
+
+        Map<String, List<CommandTemplate>> result = new HashMap<>();
+
+        for (String type : commands.getKeys(false)) {
+
+            List<CommandTemplate> templates = new ArrayList<>();
+
+            for (String command : commands.getStringList(type)) {
+                if (command == null || command.isEmpty()) continue;
+                templates.add(compile(command));
+            }
+
+            if (!templates.isEmpty()) {
+                result.put(type, Collections.unmodifiableList(templates));
+            }
+        }
+
+        return result;
+    }
+
+    /*
+     * =========================
+     *          RENDER
+     * =========================
+     */
+
+    String render(String player, String company, String role, double salary) {
+
+        StringBuilder out = new StringBuilder(literalLength + 32);
+
+        for (Object part : parts) {
+
+            if (part instanceof String) {
+                out.append((String) part);
+                continue;
+            }
+
+            switch ((Variable) part) {
+                case PLAYER:
+                    out.append(player);
+                    break;
+                case COMPANY:
+                    out.append(company);
+                    break;
+                case ROLE:
+                    out.append(role);
+                    break;
+                case SALARY:
+                    out.append(salary);
+                    break;
+            }
+        }
+
+        return out.toString();
+    }
+}
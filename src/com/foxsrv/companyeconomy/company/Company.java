@@ -1,38 +1,147 @@
 package com.foxsrv.companyeconomy.company;
 
 import com.foxsrv.companyeconomy.CompanyEconomy;
-import org.bukkit.Bukkit;
+import com.foxsrv.companyeconomy.api.CompanySnapshot;
+import com.foxsrv.companyeconomy.api.Money;
+import com.foxsrv.companyeconomy.player.PlayerNameIndex;
+import com.foxsrv.companyeconomy.storage.CompanyData;
+import com.foxsrv.companyeconomy.storage.CompanyDocument;
+import com.foxsrv.companyeconomy.storage.CompanyHeader;
+import com.foxsrv.companyeconomy.storage.CompanyHistory;
+import com.foxsrv.companyeconomy.storage.CompanyJournal;
+import com.foxsrv.companyeconomy.storage.CompanyStore;
+import com.foxsrv.companyeconomy.storage.RegistrySnapshot;
+import com.foxsrv.companyeconomy.storage.Transaction;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Company {
 
     private final CompanyEconomy plugin;
-    private final File file;
-    private final YamlConfiguration config;
+    private final CompanyStore store;
+    private YamlConfiguration config;
 
     private final String name;
-    private final String displayName;
+    private String displayName;
 
-    private double balance;
+    // Minor units (cents), updated lock-free so async callers never block
+    private final AtomicLong balance = new AtomicLong();
 
-    // PlayerName (lowercase) -> groupId
-    private final Map<String, Integer> employees = new HashMap<>();
+    // Compiled from the "groups" section on load / reload
+    private GroupTable groups = GroupTable.EMPTY;
 
-    public Company(CompanyEconomy plugin, File file) {
+    // payroll.interval-minutes in millis, 0 = the plugin default
+    private long payInterval;
+
+    // Compiled from the "commands" section: type -> templates
+    private Map<String, List<CommandTemplate>> globalCommands = Collections.emptyMap();
+
+    // Player uuid -> groupId; names live in the plugin's PlayerNameIndex
+    private final Roster employees = new Roster();
+
+    // Sum of the members' salaries (minor units), kept with the roster
+    private volatile long payroll;
+
+    // Members the last load moved to uuid keys (written back by a save)
+    private int migratedMembers;
+
+    // Sorted, rendered roster for /company info; null after a roster change
+    private volatile MemberView memberView;
+
+    // False while only the header (displayName, balance) has been read
+    private volatile boolean loaded;
+
+    // Row version and balance as of the last read or write of the store
+    // (versioned stores only); shared storage merges from there
+    private volatile long storedVersion;
+    private volatile long storedBalance;
+
+    // Writes of this copy to the store so far
+    private final AtomicLong stores = new AtomicLong();
+
+    // Deleted or replaced in the registry: never written again
+    private volatile boolean discarded;
+
+    // Loads an existing company (only its header when lazy)
+    Company(CompanyEconomy plugin, CompanyStore store, String name, boolean lazy)
+            throws IOException {
         this.plugin = plugin;
-        this.file = file;
-        this.config = YamlConfiguration.loadConfiguration(file);
+        this.store = store;
+        this.name = name;
+
+        if (lazy) {
+            CompanyHeader header = store.loadHeader(name);
+            if (header != null) {
+                this.displayName = header.getDisplayName();
+                this.balance.set(Money.toMinor(header.getBalance()));
+                this.storedBalance = balance.get();
+                return;
+            }
+        }
+
+        load(store.loadDocument(name));
+    }
+
+    // Wraps a document that did not come from store.load (a new or
+    // imported company, or one from the registry snapshot)
+    Company(CompanyEconomy plugin, CompanyStore store, String name, YamlConfiguration config) {
+        this.plugin = plugin;
+        this.store = store;
+        this.name = name;
+
+        load(new CompanyDocument(config, 0L));
+    }
+
+    /*
+     * =========================
+     *       LAZY LOADING
+     * =========================
+     */
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    void ensureLoaded() {
+        if (loaded) return;
+
+        synchronized (this) {
+            if (loaded) return;
+
+            try {
+                load(store.loadDocument(name));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load company " + name, e);
+            }
+        }
+
+        if (migratedMembers > 0) save();
+
+        plugin.getCompanyManager().onCompanyLoaded(this);
+    }
+
+    private void load(CompanyDocument document) {
+        this.config = document.getConfig();
 
-        this.name = file.getName().replace(".yml", "");
         this.displayName = config.getString("displayName", name);
-        this.balance = config.getDouble("balance", 0.0);
+        this.balance.set(Money.toMinor(config.getDouble("balance", 0.0)));
+        this.storedVersion = document.getVersion();
+        this.storedBalance = balance.get();
+        this.groups = GroupTable.compile(
+                config.getConfigurationSection("groups"), plugin.getLogger(), name);
+        this.globalCommands = CommandTemplate.compileAll(
+                config.getConfigurationSection("commands"));
+        this.payInterval = Math.max(0L, config.getLong("payroll.interval-minutes", 0L)) * 60_000L;
 
         loadEmployees();
+        this.memberView = null;
+
+        this.loaded = true;
     }
 
     /*
@@ -42,13 +151,104 @@ public class Company {
      */
 
     private void loadEmployees() {
-        ConfigurationSection dataSection = config.getConfigurationSection("data");
-        if (dataSection == null) return;
 
-        for (String playerName : dataSection.getKeys(false)) {
-            int group = dataSection.getInt(playerName + ".group");
-            employees.put(playerName.toLowerCase(), group);
+        PlayerNameIndex names = plugin.getPlayerNames();
+
+        // members.<uuid>.name / .group
+        ConfigurationSection members = config.getConfigurationSection("members");
+
+        if (members != null) {
+            for (String key : members.getKeys(false)) {
+
+                UUID playerId;
+                try {
+                    playerId = UUID.fromString(key);
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().warning("Company " + name + ": ignoring member with invalid uuid " + key);
+                    continue;
+                }
+
+                String playerName = members.getString(key + ".name");
+                int group = members.getInt(key + ".group");
+
+                // Hired by name before ever joining, and has joined since
+                UUID known = names.getUniqueId(playerName);
+
+                if (known != null && !known.equals(playerId)
+                        && playerId.equals(PlayerNameIndex.offlineUniqueId(playerName))) {
+                    members.set(key, null);
+                    writeMember(known, playerName, group);
+                    playerId = known;
+                    migratedMembers++;
+                } else {
+                    names.learn(playerId, playerName);
+                }
+
+                employees.put(playerId, group);
+                payroll += salaryMinor(group);
+            }
+        }
+
+        // data.<name>.group, written by older versions
+        ConfigurationSection data = config.getConfigurationSection("data");
+        if (data == null) return;
+
+        int legacy = 0;
+
+        for (String playerName : data.getKeys(false)) {
+            int group = data.getInt(playerName + ".group");
+            UUID playerId = names.resolve(playerName);
+
+            employees.put(playerId, group);
+            payroll += salaryMinor(group);
+            writeMember(playerId, playerName, group);
+            legacy++;
+        }
+
+        config.set("data", null);
+        migratedMembers += legacy;
+
+        plugin.getLogger().info("Company " + name + ": moved " + legacy
+                + " name-keyed member(s) to uuid keys.");
+    }
+
+    private void writeMember(UUID playerId, String playerName, int groupId) {
+        String path = "members." + playerId;
+        config.set(path + ".name", playerName);
+        config.set(path + ".group", groupId);
+    }
+
+    // When the member's salary was last settled (payroll.accrual), 0 if never
+    long getSettled(UUID playerId) {
+        ensureLoaded();
+        synchronized (config) {
+            return config.getLong("members." + playerId + ".settled", 0L);
+        }
+    }
+
+    // Journaled with the salary withdrawal it settles
+    void setSettled(UUID playerId, long time) {
+
+        if (!putSettled(playerId, time)) return;
+
+        CompanyJournal journal = journal();
+        if (journal != null) journal.appendSettled(name, playerId, time);
+    }
+
+    // Also used by journal replay; false when not a member
+    boolean putSettled(UUID playerId, long time) {
+        ensureLoaded();
+        synchronized (config) {
+            // Fired meanwhile: do not bring the member section back
+            if (employees.get(playerId) == Roster.NONE) return false;
+            config.set("members." + playerId + ".settled", time);
         }
+        save();
+        return true;
+    }
+
+    int getMigratedMembers() {
+        return migratedMembers;
     }
 
     /*
@@ -66,21 +266,77 @@ public class Company {
     }
 
     public double getBalance() {
-        return balance;
+        return Money.toMajor(balance.get());
+    }
+
+    public long getBalanceMinor() {
+        return balance.get();
+    }
+
+    public int getEmployeeCount() {
+        ensureLoaded();
+        return employees.size();
+    }
+
+    // What one payday costs if every member is paid (minor units)
+    public long getPayrollMinor() {
+        ensureLoaded();
+        return payroll;
+    }
+
+    // Copy: player uuid -> groupId
+    public Map<UUID, Integer> getEmployees() {
+        Map<UUID, Integer> result = new HashMap<>();
+        forEachEmployee(result::put);
+        return result;
     }
 
-    public Map<String, Integer> getEmployees() {
-        return employees;
+    UUID[] getEmployeeIds() {
+        ensureLoaded();
+        return employees.keys();
+    }
+
+    void forEachEmployee(Roster.Visitor visitor) {
+        ensureLoaded();
+        employees.forEach(visitor);
+    }
+
+    public boolean isEmployee(UUID playerId) {
+        return getEmployeeGroup(playerId) != -1;
+    }
+
+    public int getEmployeeGroup(UUID playerId) {
+        if (playerId == null) return -1;
+        ensureLoaded();
+        return employees.get(playerId);
     }
 
     public boolean isEmployee(String playerName) {
-        if (playerName == null) return false;
-        return employees.containsKey(playerName.toLowerCase());
+        return getEmployeeGroup(playerName) != -1;
     }
 
     public int getEmployeeGroup(String playerName) {
-        if (playerName == null) return -1;
-        return employees.getOrDefault(playerName.toLowerCase(), -1);
+        return getEmployeeGroup(plugin.getPlayerNames().getUniqueId(playerName));
+    }
+
+    public String getEmployeeName(UUID playerId) {
+        String playerName = plugin.getPlayerNames().getName(playerId);
+        return playerName != null ? playerName : playerId.toString();
+    }
+
+    public MemberView getMemberView() {
+        ensureLoaded();
+
+        MemberView view = memberView;
+        if (view != null) return view;
+
+        // Built under the roster lock so a concurrent change cannot be cached over
+        synchronized (config) {
+            if (memberView == null) {
+                memberView = MemberView.build(employees, groups, this::getEmployeeName);
+            }
+            return memberView;
+        }
     }
 
     /*
@@ -89,55 +345,95 @@ public class Company {
      * =========================
      */
 
+    public GroupTable getGroups() {
+        ensureLoaded();
+        return groups;
+    }
+
     public int getGroupIdByName(String roleName) {
-        if (roleName == null) return -1;
+        return getGroups().getIdByTag(roleName);
+    }
 
-        ConfigurationSection groups = config.getConfigurationSection("groups");
-        if (groups == null) return -1;
+    public String getGroupTag(int groupId) {
+        return getGroups().getTag(groupId);
+    }
 
-        for (String id : groups.getKeys(false)) {
-            ConfigurationSection section = groups.getConfigurationSection(id);
-            if (section == null) continue;
+    public List<String> getGroupTags() {
+        return getGroups().getTags();
+    }
 
-            String tag = section.getString("tag");
-            if (tag != null && tag.equalsIgnoreCase(roleName)) {
-                return Integer.parseInt(id);
-            }
-        }
+    public double getSalary(int groupId) {
+        return getGroups().getSalary(groupId);
+    }
 
-        return -1;
+    private long salaryMinor(int groupId) {
+        return Money.toMinor(groups.getSalary(groupId));
     }
 
-    public List<String> getGroupTags() {
-        List<String> tags = new ArrayList<>();
+    /*
+     * =========================
+     *      PAY SCHEDULE
+     * =========================
+     */
 
-        ConfigurationSection groups = config.getConfigurationSection("groups");
-        if (groups == null) return tags;
+    // Group's own interval, else the company's, else defaultInterval (millis)
+    public long getPayInterval(int groupId, long defaultInterval) {
+        long interval = getGroups().getPayInterval(groupId);
+        if (interval > 0) return interval;
+        return payInterval > 0 ? payInterval : defaultInterval;
+    }
 
-        for (String id : groups.getKeys(false)) {
-            ConfigurationSection section = groups.getConfigurationSection(id);
-            if (section == null) continue;
+    // Distinct intervals of the groups, one payroll schedule each
+    long[] getPayIntervals(long defaultInterval) {
+        return getGroups().getPayIntervals(payInterval > 0 ? payInterval : defaultInterval);
+    }
 
-            String tag = section.getString("tag");
-            if (tag != null)
-                tags.add(tag);
+    // Start of the last paid period of one schedule (epoch millis), 0 if never
+    long getLastPaid(long interval) {
+        ensureLoaded();
+        synchronized (config) {
+            return config.getLong(lastPaidPath(interval), 0L);
         }
+    }
+
+    // Journaled with the payroll withdrawals, so a replayed balance never
+    // comes back without the slot it paid
+    void setLastPaid(long interval, long time) {
 
-        return tags;
+        putLastPaid(interval, time);
+
+        CompanyJournal journal = journal();
+        if (journal != null) journal.appendLastPaid(name, interval, time);
     }
 
-    public double getSalary(int groupId) {
-        return config.getDouble("groups." + groupId + ".salary", 0.0);
+    // Also used by journal replay
+    void putLastPaid(long interval, long time) {
+        ensureLoaded();
+        synchronized (config) {
+            config.set(lastPaidPath(interval), time);
+        }
+        save();
     }
 
-    public boolean hasPermission(String playerName, String permission) {
-        int group = getEmployeeGroup(playerName);
+    private static String lastPaidPath(long interval) {
+        return "payroll.last-paid." + interval / 60_000L;
+    }
+
+    public boolean hasPermission(UUID playerId, CompanyPermission permission) {
+        if (permission == null) return false;
+
+        int group = getEmployeeGroup(playerId);
         if (group == -1) return false;
 
-        return config.getBoolean(
-                "groups." + group + ".permissions." + permission,
-                false
-        );
+        return groups.hasPermission(group, permission);
+    }
+
+    public boolean hasPermission(String playerName, CompanyPermission permission) {
+        return hasPermission(plugin.getPlayerNames().getUniqueId(playerName), permission);
+    }
+
+    public boolean hasPermission(String playerName, String permission) {
+        return hasPermission(playerName, CompanyPermission.fromKey(permission));
     }
 
     /*
@@ -146,28 +442,90 @@ public class Company {
      * =========================
      */
 
+    // Players never seen on this server get a provisional uuid (see PlayerNameIndex.resolve)
     public void addEmployee(String playerName, int groupId) {
-
         if (playerName == null) return;
+        addEmployee(plugin.getPlayerNames().resolve(playerName), playerName, groupId);
+    }
 
-        String key = playerName.toLowerCase();
+    public void addEmployee(UUID playerId, String playerName, int groupId) {
 
-        employees.put(key, groupId);
+        if (playerId == null) return;
 
-        config.set("data." + playerName + ".group", groupId);
+        putEmployee(playerId, playerName, groupId);
 
-        save();
+        CompanyJournal journal = journal();
+        if (journal != null) journal.appendMember(name, playerId, playerName, groupId);
     }
 
     public void removeEmployee(String playerName) {
+        removeEmployee(plugin.getPlayerNames().getUniqueId(playerName));
+    }
 
-        if (playerName == null) return;
+    public void removeEmployee(UUID playerId) {
+
+        if (playerId == null) return;
+
+        dropEmployee(playerId);
+
+        CompanyJournal journal = journal();
+        if (journal != null) journal.appendRemoval(name, playerId);
+    }
+
+    // Provisional uuid -> the real one, once the player joins
+    void rekeyEmployee(UUID from, UUID to, String playerName) {
+
+        int group = getEmployeeGroup(from);
+        if (group == -1) return;
+
+        long settled = getSettled(from);
+
+        addEmployee(to, playerName, group);
+        removeEmployee(from);
+
+        if (settled > 0) setSettled(to, settled);
+    }
+
+    // Also used by journal replay, which must not journal again
+    void putEmployee(UUID playerId, String playerName, int groupId) {
+
+        ensureLoaded();
+
+        if (playerName == null) playerName = plugin.getPlayerNames().getName(playerId);
+
+        synchronized (config) {
+            int previous = employees.get(playerId);
+            boolean hired = previous == Roster.NONE;
+
+            if (!hired) payroll -= salaryMinor(previous);
+            payroll += salaryMinor(groupId);
+
+            employees.put(playerId, groupId);
+            writeMember(playerId, playerName, groupId);
+            memberView = null;
+
+            // Salary accrues from the hire, not from the first settlement
+            if (hired) config.set("members." + playerId + ".settled", System.currentTimeMillis());
+        }
+
+        plugin.getCompanyManager().onEmployeeAdded(this, playerId, groupId);
+
+        save();
+    }
+
+    void dropEmployee(UUID playerId) {
 
-        String key = playerName.toLowerCase();
+        ensureLoaded();
 
-        employees.remove(key);
+        synchronized (config) {
+            int previous = employees.remove(playerId);
+            if (previous != Roster.NONE) payroll -= salaryMinor(previous);
+
+            config.set("members." + playerId, null);
+            memberView = null;
+        }
 
-        config.set("data." + playerName, null);
+        plugin.getCompanyManager().onEmployeeRemoved(this, playerId);
 
         save();
     }
@@ -179,15 +537,108 @@ public class Company {
      */
 
     public void deposit(double amount) {
-        balance += amount;
-        config.set("balance", balance);
-        save();
+        deposit(amount, null);
     }
 
     public void withdraw(double amount) {
-        balance -= amount;
-        config.set("balance", balance);
+        withdraw(amount, null);
+    }
+
+    // Only withdraws if the balance covers the amount
+    public boolean tryWithdraw(double amount) {
+        return tryWithdraw(amount, null);
+    }
+
+    public long depositMinor(long amount) {
+        return depositMinor(amount, null);
+    }
+
+    public long withdrawMinor(long amount) {
+        return withdrawMinor(amount, null);
+    }
+
+    public boolean tryWithdrawMinor(long amount) {
+        return tryWithdrawMinor(amount, null);
+    }
+
+    // actor: who moved the money, for the transaction history (null if unknown)
+    public void deposit(double amount, String actor) {
+        depositMinor(Money.toMinor(amount), actor);
+    }
+
+    public void withdraw(double amount, String actor) {
+        withdrawMinor(Money.toMinor(amount), actor);
+    }
+
+    public boolean tryWithdraw(double amount, String actor) {
+        return tryWithdrawMinor(Money.toMinor(amount), actor);
+    }
+
+    // Throws ArithmeticException instead of overflowing
+    public long depositMinor(long amount, String actor) {
+        ensureLoaded();
+
+        long current, updated;
+        do {
+            current = balance.get();
+            updated = Math.addExact(current, amount);
+        } while (!balance.compareAndSet(current, updated));
+
+        balanceChanged(amount, updated, actor);
+        return updated;
+    }
+
+    public long withdrawMinor(long amount, String actor) {
+        ensureLoaded();
+
+        long current, updated;
+        do {
+            current = balance.get();
+            updated = Math.subtractExact(current, amount);
+        } while (!balance.compareAndSet(current, updated));
+
+        balanceChanged(-amount, updated, actor);
+        return updated;
+    }
+
+    public boolean tryWithdrawMinor(long amount, String actor) {
+        ensureLoaded();
+
+        long current;
+        do {
+            current = balance.get();
+            if (current < amount) return false;
+        } while (!balance.compareAndSet(current, current - amount));
+
+        balanceChanged(-amount, current - amount, actor);
+        return true;
+    }
+
+    // Journal replay: restores the recorded value without journaling it again
+    void setBalanceMinor(long value) {
+        ensureLoaded();
+        balance.set(value);
         save();
+
+        plugin.getCompanyManager().onBalanceChanged(this);
+    }
+
+    // Journaled after save(): compaction must never drop a record
+    // whose company is not marked dirty yet. The journal reads the
+    // balance under its own lock, so the last record always holds the
+    // latest value even when two threads race here.
+    private void balanceChanged(long amount, long updated, String actor) {
+        save();
+
+        plugin.getCompanyManager().onBalanceChanged(this);
+
+        CompanyJournal journal = journal();
+        if (journal != null) journal.appendBalance(name, balance::get);
+
+        CompanyHistory history = plugin.getCompanyManager().getHistory();
+        if (history != null) {
+            history.record(name, new Transaction(System.currentTimeMillis(), amount, updated, actor));
+        }
     }
 
     /*
@@ -198,50 +649,165 @@ public class Company {
 
     // EXECUTA MESMO OFFLINE
     public void executeGroupCommands(String type, String playerName, int groupId) {
+        dispatch(getGroups().getCommands(groupId, type), playerName, groupId);
+    }
 
-        List<String> commands = config.getStringList(
-                "groups." + groupId + ".commands." + type
-        );
+    // EXECUTA MESMO OFFLINE
+    public void executeGlobalCommands(String type, String playerName) {
+        executeGlobalCommands(type, playerName, -1);
+    }
+
+    // groupId fills %role% and %salary% (the group the player had, -1 if unknown)
+    public void executeGlobalCommands(String type, String playerName, int groupId) {
+        ensureLoaded();
+        dispatch(globalCommands.getOrDefault(type, Collections.emptyList()), playerName, groupId);
+    }
 
-        if (commands == null || commands.isEmpty()) return;
+    private void dispatch(List<CommandTemplate> commands, String playerName, int groupId) {
 
-        for (String cmd : commands) {
-            if (cmd == null || cmd.isEmpty()) continue;
+        if (commands.isEmpty()) return;
 
-            String parsed = cmd.replace("%player%", playerName);
+        String role = groups.getTag(groupId);
+        double salary = groups.getSalary(groupId);
 
-            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), parsed);
+        for (CommandTemplate command : commands) {
+            plugin.getCommandQueue().enqueue(
+                    command.render(playerName, name, role == null ? "" : role, salary));
         }
     }
 
-    // EXECUTA MESMO OFFLINE
-    public void executeGlobalCommands(String type, String playerName) {
+    /*
+     * =========================
+     *          SAVE
+     * =========================
+     */
 
-        List<String> commands = config.getStringList("commands." + type);
+    // Does not touch the disk: marks the company dirty for the CompanySaver
+    public void save() {
+        plugin.getCompanyManager().getSaver().markDirty(this);
+    }
 
-        if (commands == null || commands.isEmpty()) return;
+    private CompanyJournal journal() {
+        return plugin.getCompanyManager().getJournal();
+    }
 
-        for (String cmd : commands) {
-            if (cmd == null || cmd.isEmpty()) continue;
+    // Consistent copy for the store, taken on the CompanySaver thread
+    CompanyData toData() {
+        ensureLoaded();
+        synchronized (config) {
+            double current = getBalance();
+            config.set("balance", current);
 
-            String parsed = cmd.replace("%player%", playerName);
+            // The SQL projection keeps one row per member uuid, named as in the document
+            List<CompanyData.MemberRow> members = new ArrayList<>(employees.size());
+            employees.forEach((playerId, groupId) -> members.add(new CompanyData.MemberRow(playerId,
+                    config.getString("members." + playerId + ".name", getEmployeeName(playerId)), groupId)));
 
-            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), parsed);
+            return new CompanyData(name, displayName, current,
+                    config.saveToString(), members, groups.toRows(), storedVersion);
         }
     }
 
+    // Adds the document to a registry snapshot, under the roster lock so
+    // it is never taken halfway through a change; false when not parsed
+    // yet or not representable
+    boolean writeSnapshot(RegistrySnapshot.Writer writer, long[] fingerprint) {
+        if (!loaded) return false;
+
+        synchronized (config) {
+            return writer.add(name, fingerprint[0], fingerprint[1], fingerprint[2], config);
+        }
+    }
+
+    long getStoredVersion() {
+        return storedVersion;
+    }
+
+    // The store wrote 'data' (a snapshot of this company)
+    void stored(CompanyData data) {
+        storedVersion = data.getWrittenVersion();
+        storedBalance = Money.toMinor(data.getBalance());
+        stores.incrementAndGet();
+    }
+
     /*
      * =========================
-     *          SAVE
+     *     SHARED STORAGE
      * =========================
      */
 
-    public void save() {
-        try {
-            config.save(file);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save company file: " + name);
-            e.printStackTrace();
+    // Balance as of the last read or write of the store (minor units)
+    long getStoredBalanceMinor() {
+        return storedBalance;
+    }
+
+    long getStoreCount() {
+        return stores.get();
+    }
+
+    boolean isDiscarded() {
+        return discarded;
+    }
+
+    void discard() {
+        discarded = true;
+    }
+
+    // This company was just read from the store (shared storage, or a file
+    // edited on disk); takes over what 'local' (the copy it replaces)
+    // changed since its own last read or write. Money moves as the
+    // difference, payroll and accrual times keep the later one, the rest
+    // of the document is the stored one. True when anything was taken
+    // over (the result must be written back).
+    boolean mergeUnsaved(Company local) {
+        return mergeUnsaved(local, local.storedBalance);
+    }
+
+    // Same, with the money measured from 'base': the stored balance of
+    // 'local' when this copy was read
+    boolean mergeUnsaved(Company local, long base) {
+
+        if (!local.isLoaded()) return false;
+
+        boolean kept = false;
+
+        long delta = local.getBalanceMinor() - base;
+        if (delta != 0) {
+            balance.addAndGet(delta);
+            kept = true;
+        }
+
+        synchronized (config) {
+            synchronized (local.config) {
+
+                ConfigurationSection paid = local.config.getConfigurationSection("payroll.last-paid");
+                if (paid != null) {
+                    for (String key : paid.getKeys(false)) {
+                        String path = "payroll.last-paid." + key;
+                        if (paid.getLong(key) > config.getLong(path, 0L)) {
+                            config.set(path, paid.getLong(key));
+                            kept = true;
+                        }
+                    }
+                }
+
+                for (UUID playerId : employees.keys()) {
+                    String path = "members." + playerId + ".settled";
+                    long settled = local.config.getLong(path, 0L);
+                    if (settled > config.getLong(path, 0L)) {
+                        config.set(path, settled);
+                        kept = true;
+                    }
+                }
+            }
         }
+
+        return kept;
+    }
+
+    // Read-only copy for the public API
+    public CompanySnapshot snapshot() {
+        ensureLoaded();
+        return new CompanySnapshot(name, displayName, balance.get(), getEmployees());
     }
 }
@@ -0,0 +1,100 @@
+package com.foxsrv.companyeconomy.company;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/*
+ * Watches companies/ and hands the edited company files to
+ * CompanyManager.reloadChanged.
+ *
+ * Events are collected until the folder has been quiet for
+ * reload.debounce-ms (editors often save in several steps). The plugin's
+ * own writes show up here too; the store's fingerprints filter them out.
+ */
+final class CompanyFileWatcher implements Runnable {
+
+    private final CompanyManager manager;
+    private final long debounceMillis;
+    private final Logger logger;
+    private final WatchService service;
+    private final Thread thread;
+
+    CompanyFileWatcher(CompanyManager manager, Path folder, long debounceMillis, Logger logger)
+            throws IOException {
+        this.manager = manager;
+        this.debounceMillis = Math.max(0L, debounceMillis);
+        this.logger = logger;
+
+        this.service = folder.getFileSystem().newWatchService();
+        folder.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+        this.thread = new Thread(this, "CompanyEconomy-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+
+                Set<String> changed = new HashSet<>();
+                boolean overflow = collect(service.take(), changed);
+
+                WatchKey key;
+                while ((key = service.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(key, changed);
+                }
+
+                if (!overflow && changed.isEmpty()) continue;
+
+                try {
+                    // Lost events: every file is checked
+                    manager.reloadChanged(overflow ? null : changed);
+                } catch (RuntimeException e) {
+                    logger.severe("Could not reload edited company files: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+
+        } catch (InterruptedException | ClosedWatchServiceException stopped) {
+            // close()
+        }
+    }
+
+    // Company names of the .yml files in the events; true when events were lost
+    private boolean collect(WatchKey key, Set<String> names) {
+
+        boolean overflow = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+
+            String file = event.context().toString();
+            if (file.toLowerCase().endsWith(".yml")) {
+                names.add(file.substring(0, file.length() - ".yml".length()));
+            }
+        }
+
+        key.reset();
+        return overflow;
+    }
+
+    void close() {
+        try {
+            service.close();
+        } catch (IOException ignored) {
+        }
+        thread.interrupt();
+    }
+}
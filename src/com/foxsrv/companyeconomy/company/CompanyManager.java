@@ -1,21 +1,68 @@
 package com.foxsrv.companyeconomy.company;
 
 import com.foxsrv.companyeconomy.CompanyEconomy;
+import com.foxsrv.companyeconomy.api.Money;
+import com.foxsrv.companyeconomy.storage.CompanyArchive;
+import com.foxsrv.companyeconomy.storage.CompanyData;
+import com.foxsrv.companyeconomy.storage.CompanyHistory;
+import com.foxsrv.companyeconomy.storage.CompanyJournal;
+import com.foxsrv.companyeconomy.storage.CompanyStore;
+import com.foxsrv.companyeconomy.storage.RegistrySnapshot;
+import com.foxsrv.companyeconomy.storage.SharedCompanyStore;
+import com.foxsrv.companyeconomy.storage.SqliteCompanyStore;
+import com.foxsrv.companyeconomy.storage.YamlCompanyStore;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class CompanyManager {
 
     private final CompanyEconomy plugin;
-    private final Map<String, Company> companies = new HashMap<>();
+    // Replaced as a whole when a load finishes
+    private volatile Map<String, Company> companies = new ConcurrentHashMap<>();
+    private volatile MembershipIndex memberships = new MembershipIndex();
+    private volatile CompanyRanking ranking = new CompanyRanking();
+
+    private final CompanyStore store;
+    private final CompanyJournal journal;
+    private final CompanyHistory history;
+    private final CompanySaver saver;
+    private CompanyFileWatcher watcher;
+    private SharedStateSync sharedSync;
     private File companiesFolder;
 
+    // Shared storage: payroll runs here until then (epoch millis, see SharedStateSync)
+    private volatile long payrollLeaseUntil;
+
+    private final LongAdder companiesReloaded;
+    private final LongAdder companiesFromSnapshot;
+
+    // Bumped whenever companies are added, replaced, removed or parsed
+    private final AtomicLong registryVersion = new AtomicLong();
+
     public CompanyManager(CompanyEconomy plugin) {
         this.plugin = plugin;
         setupFolder();
+        this.store = openStore();
+        this.journal = openJournal();
+        this.history = openHistory();
+        this.saver = new CompanySaver(plugin, store, journal);
+
+        plugin.getMetrics().gauge("companies", "Companies currently loaded",
+                () -> companies.size());
+        this.companiesReloaded = plugin.getMetrics().counter("companies_reloaded_total",
+                "Company files re-read after being created or edited on disk");
+        this.companiesFromSnapshot = plugin.getMetrics().counter("companies_from_snapshot_total",
+                "Companies loaded from the registry snapshot instead of their YAML file");
     }
 
     /*
@@ -36,20 +83,291 @@ public class CompanyManager {
 
     /*
      * =========================
-     *   CREATE DEFAULT FILE
+     *         STORAGE
      * =========================
      */
 
-    private void createDefaultCompanyIfMissing() {
+    private CompanyStore openStore() {
 
-        File defaultFile = new File(companiesFolder, "defaultCompany.yml");
+        String type = plugin.getConfig().getString("storage.type", "yaml");
 
-        if (defaultFile.exists()) {
-            return;
+        if ("sqlite".equalsIgnoreCase(type)) {
+
+            File file = new File(plugin.getDataFolder(),
+                    plugin.getConfig().getString("storage.sqlite-file", "companies.db"));
+
+            CompanyStore sqlite = new SqliteCompanyStore(file);
+
+            try {
+                sqlite.open();
+                plugin.getLogger().info("Using SQLite storage: " + file.getName());
+                return sqlite;
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not open SQLite storage, "
+                        + "falling back to YAML files.");
+                e.printStackTrace();
+            }
+
+        } else if ("shared".equalsIgnoreCase(type)) {
+
+            // Absolute, or relative to the plugin folder
+            File file = new File(plugin.getConfig().getString("storage.shared.file", "../../shared/companies.db"));
+            if (!file.isAbsolute()) file = new File(plugin.getDataFolder(), file.getPath());
+
+            String node = plugin.getConfig().getString("storage.shared.node", "");
+            if (node.isEmpty()) node = "server-" + Bukkit.getPort();
+
+            CompanyStore shared = new SharedCompanyStore(file, node);
+
+            try {
+                File folder = file.getAbsoluteFile().getParentFile();
+                if (!folder.exists() && !folder.mkdirs()) {
+                    throw new IOException("Could not create " + folder);
+                }
+
+                shared.open();
+                plugin.getLogger().info("Using shared storage " + file.getPath() + " as " + node);
+                return shared;
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not open the shared storage, "
+                        + "falling back to YAML files.");
+                e.printStackTrace();
+            }
+
+        } else if (!"yaml".equalsIgnoreCase(type)) {
+            plugin.getLogger().warning("Unknown storage.type '" + type
+                    + "', using YAML files.");
+        }
+
+        CompanyStore yaml = new YamlCompanyStore(companiesFolder);
+
+        try {
+            yaml.open();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not prepare the companies folder.");
+            e.printStackTrace();
+        }
+
+        return yaml;
+    }
+
+    public CompanyStore getStore() {
+        return store;
+    }
+
+    private CompanyJournal openJournal() {
+
+        if (!plugin.getConfig().getBoolean("journal.enabled", true)) {
+            return null;
+        }
+
+        // Replaying balances over what other servers wrote since would undo their changes
+        if (store.isShared()) {
+            plugin.getLogger().info("Shared storage: the journal is off, "
+                    + "changes are saved by the periodic flush.");
+            return null;
+        }
+
+        try {
+            return new CompanyJournal(
+                    new File(plugin.getDataFolder(), "journal"),
+                    plugin.getConfig().getLong("journal.fsync-interval-ms", 200L),
+                    plugin.getLogger());
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not open the company journal, "
+                    + "changes are only saved by the periodic flush.");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private CompanyHistory openHistory() {
+
+        if (!plugin.getConfig().getBoolean("history.enabled", true)) {
+            return null;
+        }
+
+        try {
+            return new CompanyHistory(
+                    new File(plugin.getDataFolder(), "history"),
+                    plugin.getConfig().getInt("history.memory-entries", 128),
+                    plugin.getConfig().getInt("history.segment-entries", 4096),
+                    plugin.getConfig().getInt("history.max-segments", 16),
+                    plugin.getConfig().getLong("history.flush-interval-seconds", 5L) * 1000L,
+                    plugin.getLogger());
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not open the transaction history, "
+                    + "balance changes are not recorded.");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Null when history.enabled is false
+    public CompanyHistory getHistory() {
+        return history;
+    }
+
+    public CompanyJournal getJournal() {
+        return journal;
+    }
+
+    /*
+     * =========================
+     *     CRASH RECOVERY
+     * =========================
+     */
+
+    // Startup only: re-applies journal records left by an unclean stop
+    public void recoverJournal() {
+
+        if (journal == null) return;
+
+        int applied = journal.replay(new CompanyJournal.Replayer() {
+
+            @Override
+            public void balance(String company, long balanceMinor) {
+                Company target = getCompany(company);
+                if (target != null) target.setBalanceMinor(balanceMinor);
+            }
+
+            @Override
+            public void member(String company, UUID playerId, String playerName, int groupId) {
+                Company target = getCompany(company);
+                if (target != null) target.putEmployee(playerId, playerName, groupId);
+            }
+
+            @Override
+            public void removal(String company, UUID playerId) {
+                Company target = getCompany(company);
+                if (target != null) target.dropEmployee(playerId);
+            }
+
+            @Override
+            public void lastPaid(String company, long interval, long time) {
+                Company target = getCompany(company);
+                if (target != null) target.putLastPaid(interval, time);
+            }
+
+            @Override
+            public void settled(String company, UUID playerId, long time) {
+                Company target = getCompany(company);
+                if (target != null) target.putSettled(playerId, time);
+            }
+        });
+
+        if (applied > 0) {
+            plugin.getLogger().warning("Recovered " + applied
+                    + " journal record(s) from an unclean shutdown.");
+        }
+
+        // Fold the recovered state into the store and drop the old segments
+        saver.compact();
+    }
+
+    /*
+     * =========================
+     *     REGISTRY SNAPSHOT
+     * =========================
+     */
+
+    // YAML storage only: the other stores do not parse a file per company
+    private boolean snapshotEnabled() {
+        return store instanceof YamlCompanyStore
+                && plugin.getConfig().getBoolean("snapshot.enabled", true);
+    }
+
+    private File snapshotFile() {
+        return new File(plugin.getDataFolder(), "companies.snapshot");
+    }
+
+    private RegistrySnapshot readSnapshot() {
+
+        if (!snapshotEnabled()) return null;
+
+        try {
+            return RegistrySnapshot.read(snapshotFile());
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().warning("Ignoring the company snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The snapshot copy, when the YAML file was not touched since it was taken
+    private Company fromSnapshot(String name, RegistrySnapshot snapshot) {
+
+        if (snapshot == null) return null;
+
+        RegistrySnapshot.Entry entry = snapshot.getEntries().get(name);
+        if (entry == null) return null;
+
+        if (!((YamlCompanyStore) store).adoptFingerprint(name,
+                entry.getModified(), entry.getSize(), entry.getCrc())) return null;
+
+        Company company = new Company(plugin, store, name, snapshot.document(entry));
+        companiesFromSnapshot.increment();
+        return company;
+    }
+
+    // Every parsed company whose file holds what is in memory; companies
+    // still waiting for a flush are left out (their file is read next start).
+    // Called by the saver periodically and on shutdown.
+    public int writeSnapshot() {
+
+        if (!snapshotEnabled()) return 0;
+
+        long start = System.nanoTime();
+        YamlCompanyStore yaml = (YamlCompanyStore) store;
+        RegistrySnapshot.Writer writer = new RegistrySnapshot.Writer();
+
+        // Fingerprints of clean companies, with no flush in between: each
+        // matches what the company holds. Encoded outside the saver lock; a
+        // company flushed meanwhile keeps the old fingerprint, so its entry
+        // no longer matches the file and is simply not used.
+        List<Company> clean = new ArrayList<>();
+        List<long[]> fingerprints = new ArrayList<>();
+
+        synchronized (saver) {
+            for (Company company : companies.values()) {
+                if (saver.isDirty(company)) continue;
+
+                long[] fingerprint = yaml.getFingerprint(company.getName());
+                if (fingerprint == null) continue;
+
+                clean.add(company);
+                fingerprints.add(fingerprint);
+            }
+        }
+
+        for (int i = 0; i < clean.size(); i++) {
+            Company company = clean.get(i);
+            if (!saver.isDirty(company)) company.writeSnapshot(writer, fingerprints.get(i));
+        }
+
+        try {
+            writer.write(snapshotFile());
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not write the company snapshot: " + e.getMessage());
+            return 0;
         }
 
+        plugin.getMetrics().timer("snapshot_write_seconds",
+                "Time to write the registry snapshot").record(System.nanoTime() - start);
+        return writer.size();
+    }
+
+    /*
+     * =========================
+     *   CREATE DEFAULT FILE
+     * =========================
+     */
+
+    private void createDefaultCompanyIfMissing() {
+
         try {
-            defaultFile.createNewFile();
+            if (store.exists("defaultCompany")) {
+                return;
+            }
 
             YamlConfiguration config = new YamlConfiguration();
 
@@ -86,17 +404,18 @@ public class CompanyManager {
                     "&7--------------------------------------"
             ));
 
-            // ===== DEFAULT EMPLOYEE (NAME SYSTEM) =====
+            // ===== DEFAULT EMPLOYEE (moved to members.<uuid> on load) =====
             config.set("data.Steve.group", 1);
 
-            config.save(defaultFile);
+            store.save(Collections.singletonList(
+                    new Company(plugin, store, "defaultCompany", config).toData()));
 
             plugin.getLogger().info(
-                    "defaultCompany.yml created with Steve as default owner."
+                    "defaultCompany created with Steve as default owner."
             );
 
         } catch (Exception e) {
-            plugin.getLogger().severe("Failed to create defaultCompany.yml");
+            plugin.getLogger().severe("Failed to create defaultCompany");
             e.printStackTrace();
         }
     }
@@ -109,34 +428,196 @@ public class CompanyManager {
 
     public void loadCompanies() {
 
-        companies.clear();
+        long start = System.nanoTime();
+
+        try {
+            loadAll(start);
+        } finally {
+            plugin.getMetrics().timer("load_seconds",
+                    "Time to load (or reload) every company").record(System.nanoTime() - start);
+        }
+    }
+
+    private void loadAll(long start) {
 
         createDefaultCompanyIfMissing();
 
-        File[] files = companiesFolder.listFiles(
-                (dir, name) -> name.toLowerCase().endsWith(".yml")
-        );
+        List<String> names;
+        try {
+            names = store.listCompanies();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not list companies from "
+                    + store.getType() + " storage.");
+            e.printStackTrace();
+            return;
+        }
 
-        if (files == null || files.length == 0) {
+        if (names.isEmpty()) {
+            publish(Collections.emptyList());
             plugin.getLogger().warning("No company files found.");
             return;
         }
 
-        for (File file : files) {
-            try {
-                Company company = new Company(plugin, file);
-                companies.put(company.getName().toLowerCase(), company);
+        boolean parallel = plugin.getConfig().getBoolean("loading.parallel", true);
+        boolean lazy = plugin.getConfig().getBoolean("loading.lazy", false);
+
+        RegistrySnapshot snapshot = readSnapshot();
+        long fromSnapshot = companiesFromSnapshot.sum();
+
+        List<Company> loaded = parallel
+                ? parseParallel(names, lazy, snapshot)
+                : parseSequential(names, lazy, snapshot);
+
+        publish(loaded);
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        plugin.getLogger().info("Total companies loaded: " + companies.size()
+                + " in " + elapsedMillis + " ms ("
+                + (parallel ? "parallel" : "sequential")
+                + (lazy ? ", lazy" : "")
+                + (snapshot != null ? ", " + (companiesFromSnapshot.sum() - fromSnapshot) + " from snapshot" : "")
+                + ")");
+
+        if (lazy) warmUp(loaded);
+    }
+
+    private List<Company> parseSequential(List<String> names, boolean lazy, RegistrySnapshot snapshot) {
 
-                plugin.getLogger().info("Loaded company: " + company.getName());
+        List<Company> result = new ArrayList<>(names.size());
 
+        for (String name : names) {
+            try {
+                result.add(parse(name, lazy, snapshot));
             } catch (Exception e) {
-                plugin.getLogger().severe("Failed to load company file: "
-                        + file.getName());
-                e.printStackTrace();
+                logLoadFailure(name, e);
+            }
+        }
+
+        return result;
+    }
+
+    private List<Company> parseParallel(List<String> names, boolean lazy, RegistrySnapshot snapshot) {
+
+        ExecutorService pool = newLoaderPool();
+
+        try {
+            List<Future<Company>> futures = new ArrayList<>(names.size());
+
+            for (String name : names) {
+                futures.add(pool.submit(() -> parse(name, lazy, snapshot)));
+            }
+
+            List<Company> result = new ArrayList<>(names.size());
+
+            for (int i = 0; i < names.size(); i++) {
+                try {
+                    result.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    logLoadFailure(names.get(i), e.getCause());
+                }
             }
+
+            return result;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            plugin.getLogger().severe("Company loading was interrupted.");
+            return Collections.emptyList();
+
+        } finally {
+            pool.shutdown();
         }
+    }
 
-        plugin.getLogger().info("Total companies loaded: " + companies.size());
+    private Company parse(String name, boolean lazy) throws IOException {
+        return parse(name, lazy, null);
+    }
+
+    private Company parse(String name, boolean lazy, RegistrySnapshot snapshot) throws IOException {
+
+        Company company = fromSnapshot(name, snapshot);
+        if (company == null) company = new Company(plugin, store, name, lazy);
+
+        if (plugin.getConfig().getBoolean("loading.log-each-company", false)) {
+            plugin.getLogger().info("Loaded company: " + company.getName());
+        }
+
+        // Name-keyed members moved to uuids on load are written back
+        if (company.getMigratedMembers() > 0) company.save();
+
+        return company;
+    }
+
+    private void logLoadFailure(String name, Throwable error) {
+        plugin.getLogger().severe("Failed to load company: " + name);
+        error.printStackTrace();
+    }
+
+    private ExecutorService newLoaderPool() {
+
+        int threads = plugin.getConfig().getInt("loading.threads", 0);
+        if (threads <= 0) threads = Runtime.getRuntime().availableProcessors();
+
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "CompanyEconomy-Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Builds the new registry and index aside, then swaps them in
+    private void publish(List<Company> loaded) {
+
+        Map<String, Company> map = new ConcurrentHashMap<>();
+        MembershipIndex index = new MembershipIndex();
+
+        for (Company company : loaded) {
+            map.put(company.getName().toLowerCase(), company);
+
+            if (company.isLoaded()) {
+                index.addCompany(company);
+            }
+        }
+
+        companies = map;
+        memberships = index;
+        ranking = new CompanyRanking(loaded);
+        registryVersion.incrementAndGet();
+    }
+
+    // Lazy mode: parse the remaining companies in the background
+    private void warmUp(List<Company> loaded) {
+
+        ExecutorService pool = newLoaderPool();
+
+        for (Company company : loaded) {
+            pool.execute(() -> {
+                try {
+                    company.ensureLoaded();
+                } catch (RuntimeException e) {
+                    logLoadFailure(company.getName(), e);
+                }
+            });
+        }
+
+        pool.shutdown();
+    }
+
+    // Called by Company once its roster and groups are parsed
+    void onCompanyLoaded(Company company) {
+
+        if (!Bukkit.isPrimaryThread()) {
+            if (!plugin.isEnabled()) return;
+            Bukkit.getScheduler().runTask(plugin, () -> onCompanyLoaded(company));
+            return;
+        }
+
+        if (isRegistered(company)) {
+            memberships.addCompany(company);
+            ranking.update(company);
+            registryVersion.incrementAndGet();
+        }
     }
 
     /*
@@ -146,7 +627,296 @@ public class CompanyManager {
      */
 
     public void reload() {
-        loadCompanies();
+        long start = System.nanoTime();
+
+        if (store instanceof YamlCompanyStore) {
+            // Only files that differ from what was last read or written
+            applyChanges(detectChanges(null), "Reloaded company files", false);
+        } else {
+            // Pending writes must reach the store before it is read again
+            saver.compact();
+            loadCompanies();
+        }
+
+        // The journal is emptied so it cannot override edits made by hand
+        saver.compact();
+
+        plugin.getMetrics().timer("reload_seconds",
+                "Time of /company reload, including the flush after it").record(System.nanoTime() - start);
+    }
+
+    // YAML storage: edited files are reloaded without /company reload.
+    // Shared storage: changes of the other servers are polled.
+    public void startWatching() {
+
+        if (store instanceof SharedCompanyStore && sharedSync == null) {
+            sharedSync = new SharedStateSync(this, (SharedCompanyStore) store,
+                    plugin.getConfig().getLong("storage.shared.poll-interval-ms", 1000L),
+                    plugin.getConfig().getLong("storage.shared.lease-seconds", 30L) * 1000L,
+                    plugin.getLogger());
+            return;
+        }
+
+        if (!(store instanceof YamlCompanyStore) || watcher != null) return;
+        if (!plugin.getConfig().getBoolean("reload.watch-files", true)) return;
+
+        try {
+            watcher = new CompanyFileWatcher(this, companiesFolder.toPath(),
+                    plugin.getConfig().getLong("reload.debounce-ms", 500L), plugin.getLogger());
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not watch the companies folder, "
+                    + "use /company reload after editing files: " + e.getMessage());
+        }
+    }
+
+    /*
+     * =========================
+     *    INCREMENTAL RELOAD
+     * =========================
+     */
+
+    // Called by the file watcher with the edited company names (null = every
+    // file). Parsing happens on the calling thread, the swap on the main thread.
+    void reloadChanged(Collection<String> names) {
+
+        List<Change> changes = detectChanges(names);
+        if (changes.isEmpty()) return;
+
+        applyOnMainThread(changes, "Reloaded company files", false);
+    }
+
+    // Versioned stores: the saver could not write these companies because
+    // their row moved on. Called on the saver thread.
+    void reloadConflicts(Collection<String> names) {
+
+        List<Change> changes = detectChanges(names);
+        if (changes.isEmpty()) return;
+
+        applyOnMainThread(changes, null, true);
+    }
+
+    /*
+     * =========================
+     *     SHARED STORAGE
+     * =========================
+     */
+
+    // Called by SharedStateSync every poll. The poll and the reads run
+    // with no flush in between, so this server's own writes are never
+    // mistaken for another server's. The lease takes effect in the same
+    // main thread task as the changes, so a new payroll leader has seen
+    // the last payday of the previous one before paying.
+    void syncShared(SharedStateSync sync, long leaseUntil) {
+
+        List<Change> changes;
+
+        synchronized (saver) {
+            Collection<String> names = sync.poll();
+            changes = names.isEmpty() ? Collections.emptyList() : detectChanges(names);
+        }
+
+        Runnable apply = () -> {
+            if (!changes.isEmpty()) {
+                applyChanges(changes, null, true);
+                saver.requestCompaction();
+            }
+            payrollLeaseUntil = leaseUntil;
+        };
+
+        if (Bukkit.isPrimaryThread()) {
+            apply.run();
+        } else if (plugin.isEnabled()) {
+            Bukkit.getScheduler().runTask(plugin, apply);
+        }
+    }
+
+    // Always true unless the storage is shared; then only on the server
+    // holding the payroll lease
+    public boolean isPayrollLeader() {
+        return !store.isShared() || System.currentTimeMillis() < payrollLeaseUntil;
+    }
+
+    private void applyOnMainThread(List<Change> changes, String what, boolean merge) {
+
+        Runnable apply = () -> {
+            applyChanges(changes, what, merge);
+            saver.requestCompaction();
+        };
+
+        if (Bukkit.isPrimaryThread()) {
+            apply.run();
+        } else if (plugin.isEnabled()) {
+            Bukkit.getScheduler().runTask(plugin, apply);
+        }
+    }
+
+    private List<Change> detectChanges(Collection<String> names) {
+
+        Set<String> candidates = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+        if (names != null) {
+            candidates.addAll(names);
+        } else {
+            try {
+                candidates.addAll(store.listCompanies());
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not list companies from "
+                        + store.getType() + " storage.");
+                e.printStackTrace();
+                return Collections.emptyList();
+            }
+            for (Company company : companies.values()) {
+                candidates.add(company.getName());
+            }
+        }
+
+        List<Change> changes = new ArrayList<>();
+
+        for (String name : candidates) {
+            try {
+                Company current = getCompany(name);
+
+                // No flush between noting what the copy in memory last
+                // stored and reading the store (see applyChanges)
+                synchronized (saver) {
+                    if (!store.exists(name)) {
+                        if (current != null) changes.add(new Change(name, null, current));
+                        continue;
+                    }
+
+                    if (current != null && !store.hasChanged(current.getName())) continue;
+
+                    changes.add(new Change(name, parse(name, false), current));
+                }
+
+            } catch (Exception e) {
+                // The old version stays in place
+                logLoadFailure(name, e);
+            }
+        }
+
+        return changes;
+    }
+
+    // Main thread: one registry and index swap per company. With 'merge'
+    // the unsaved changes of the replaced copy are kept (shared storage);
+    // 'what' names the log line, null for none.
+    private void applyChanges(List<Change> changes, String what, boolean merge) {
+
+        int added = 0, updated = 0, removed = 0;
+
+        for (Change change : changes) {
+
+            String key = change.name.toLowerCase();
+            Company previous = companies.get(key);
+
+            boolean kept = false;
+
+            if (merge && change.company != null && previous != null) {
+
+                // Read before the copy in memory was last written: nothing new
+                if (change.company.getStoredVersion() <= previous.getStoredVersion()) continue;
+
+                kept = change.company.mergeUnsaved(previous);
+
+            } else if (change.company != null && previous != null) {
+
+                // Deposits and withdrawals of the copy in memory that the
+                // new version does not have (already moved in Vault) stay on
+                // top; so does anything it stored after the new version was read
+                boolean current = previous == change.replaced;
+                boolean flushed = !current || previous.getStoreCount() != change.stores;
+                long base = current ? change.base : previous.getStoredBalanceMinor();
+                long unsaved = previous.getBalanceMinor() - base;
+
+                if (flushed || saver.isDirty(previous)) {
+                    kept = change.company.mergeUnsaved(previous, base);
+                }
+
+                // Its flush overwrote the new version in the store: written back
+                if (flushed) kept = true;
+
+                if (unsaved != 0) {
+                    plugin.getLogger().warning(what + ": company " + previous.getName()
+                            + " had unsaved changes; kept its balance change of $" + Money.toMajor(unsaved)
+                            + " on top of the new version, its other unsaved changes were replaced.");
+                }
+            }
+
+            if (change.company == null) {
+                if (previous == null) continue;
+
+                // Written again after the deletion was seen: it is back in the store
+                if (previous == change.replaced && previous.getStoreCount() != change.stores) continue;
+
+                if (saver.isDirty(previous)) {
+                    plugin.getLogger().warning("Company " + previous.getName()
+                            + " was deleted on disk with unsaved changes (balance $"
+                            + previous.getBalance() + " discarded).");
+                }
+
+                companies.remove(key);
+                memberships.removeCompany(previous);
+                ranking.remove(previous);
+                saver.discard(previous);
+                removed++;
+                continue;
+            }
+
+            companies.put(key, change.company);
+
+            if (previous == null) {
+                memberships.addCompany(change.company);
+                added++;
+            } else {
+                memberships.replaceCompany(previous, change.company);
+                saver.discard(previous);
+                updated++;
+            }
+
+            ranking.update(change.company);
+
+            if (kept) change.company.save();
+        }
+
+        companiesReloaded.add(added + updated);
+        registryVersion.incrementAndGet();
+
+        if (what == null) return;
+
+        plugin.getLogger().info(what + ": " + added + " added, "
+                + updated + " changed, " + removed + " removed.");
+    }
+
+    private static final class Change {
+
+        private final String name;
+        private final Company company;   // null when the file was deleted
+
+        // The copy in memory when the change was read (null if none), with
+        // its stored balance and store count at that moment
+        private final Company replaced;
+        private final long base;
+        private final long stores;
+
+        // Under the saver monitor, before reading or writing the store
+        private Change(String name, Company company, Company replaced) {
+            this.name = name;
+            this.company = company;
+            this.replaced = replaced;
+            this.base = replaced == null ? 0L : replaced.getStoredBalanceMinor();
+            this.stores = replaced == null ? 0L : replaced.getStoreCount();
+        }
+    }
+
+    public void shutdown() {
+        if (watcher != null) watcher.close();
+        saver.shutdown();
+        writeSnapshot();
+        if (sharedSync != null) sharedSync.close();
+        if (journal != null) journal.close();
+        if (history != null) history.close();
+        store.close();
     }
 
     /*
@@ -155,15 +925,27 @@ public class CompanyManager {
      * =========================
      */
 
+    public CompanySaver getSaver() {
+        return saver;
+    }
+
     public Company getCompany(String name) {
         if (name == null) return null;
         return companies.get(name.toLowerCase());
     }
 
+    public long getRegistryVersion() {
+        return registryVersion.get();
+    }
+
     public List<Company> getCompanies() {
         return new ArrayList<>(companies.values());
     }
 
+    public CompanyRanking getRanking() {
+        return ranking;
+    }
+
     public List<String> getCompanyNames() {
         return companies.values().stream()
                 .map(Company::getName)
@@ -171,6 +953,87 @@ public class CompanyManager {
                 .collect(Collectors.toList());
     }
 
+    /*
+     * =========================
+     *   PLAYER -> COMPANIES
+     * =========================
+     */
+
+    public Collection<Membership> getMemberships(UUID playerId) {
+        if (playerId == null) return Collections.emptyList();
+        return memberships.get(playerId);
+    }
+
+    public Collection<Membership> getMemberships(String playerName) {
+        return getMemberships(plugin.getPlayerNames().getUniqueId(playerName));
+    }
+
+    public List<Company> getCompaniesOf(UUID playerId) {
+        List<Company> result = new ArrayList<>();
+        for (Membership membership : getMemberships(playerId)) {
+            result.add(membership.getCompany());
+        }
+        return result;
+    }
+
+    public List<Company> getCompaniesOf(String playerName) {
+        return getCompaniesOf(plugin.getPlayerNames().getUniqueId(playerName));
+    }
+
+    public Company findCompanyWithPermission(UUID playerId,
+                                             CompanyPermission permission) {
+        if (playerId == null || permission == null) return null;
+        return memberships.firstWithPermission(playerId, permission);
+    }
+
+    public Company findCompanyWithPermission(String playerName,
+                                             CompanyPermission permission) {
+        return findCompanyWithPermission(plugin.getPlayerNames().getUniqueId(playerName), permission);
+    }
+
+    // Called by Company when its roster changes
+    void onEmployeeAdded(Company company, UUID playerId, int groupId) {
+        if (isRegistered(company)) {
+            memberships.put(company, playerId, groupId);
+            ranking.updateRoster(company);
+        }
+    }
+
+    void onEmployeeRemoved(Company company, UUID playerId) {
+        if (isRegistered(company)) {
+            memberships.remove(company, playerId);
+            ranking.updateRoster(company);
+        }
+    }
+
+    // Called by Company on every balance change, from any thread
+    void onBalanceChanged(Company company) {
+        if (isRegistered(company)) {
+            ranking.updateBalance(company);
+        }
+    }
+
+    // A player hired by name before ever joining has joined: every
+    // membership moves from the provisional uuid to the real one.
+    // Companies not loaded yet (lazy mode) do the same when they load.
+    public void rekeyEmployee(UUID provisional, UUID playerId, String playerName) {
+
+        List<Membership> moved = new ArrayList<>(getMemberships(provisional));
+
+        for (Membership membership : moved) {
+            membership.getCompany().rekeyEmployee(provisional, playerId, playerName);
+        }
+
+        if (!moved.isEmpty()) {
+            plugin.getLogger().info("Moved " + moved.size() + " membership(s) of "
+                    + playerName + " to their uuid.");
+        }
+    }
+
+    private boolean isRegistered(Company company) {
+        return companies.get(company.getName().toLowerCase()) == company;
+    }
+
     /*
      * =========================
      *  COMPANY RESOLUTION
@@ -180,21 +1043,24 @@ public class CompanyManager {
     public Company resolveCompanyForExecutor(String executorName,
                                              String companyArg,
                                              String permission) {
+        return resolveCompanyForExecutor(plugin.getPlayerNames().getUniqueId(executorName),
+                companyArg, CompanyPermission.fromKey(permission));
+    }
+
+    public Company resolveCompanyForExecutor(UUID executorId,
+                                             String companyArg,
+                                             CompanyPermission permission) {
 
         if (companyArg != null) {
             Company company = getCompany(companyArg);
             if (company != null &&
-                    company.hasPermission(executorName, permission)) {
+                    company.hasPermission(executorId, permission)) {
                 return company;
             }
             return null;
         }
 
-        return companies.values().stream()
-                .sorted(Comparator.comparing(Company::getName))
-                .filter(c -> c.hasPermission(executorName, permission))
-                .findFirst()
-                .orElse(null);
+        return findCompanyWithPermission(executorId, permission);
     }
 
     /*
@@ -205,26 +1071,27 @@ public class CompanyManager {
 
     public Company createCompany(String name) {
 
-        String fileName = name + ".yml";
-        File file = new File(companiesFolder, fileName);
+        try {
+            if (store.exists(name)) {
+                return null;
+            }
 
-        if (file.exists()) {
-            return null;
-        }
+            YamlConfiguration config = new YamlConfiguration();
 
-        try {
-            if (file.createNewFile()) {
+            config.set("displayName", name);
+            config.set("balance", 0.0);
 
-                YamlConfiguration config = new YamlConfiguration();
+            Company company = new Company(plugin, store, name, config);
+            CompanyData data = company.toData();
+            store.save(Collections.singletonList(data));
+            company.stored(data);
 
-                config.set("displayName", name);
-                config.set("balance", 0.0);
-                config.save(file);
+            companies.put(name.toLowerCase(), company);
+            memberships.addCompany(company);
+            ranking.update(company);
+            registryVersion.incrementAndGet();
+            return company;
 
-                Company company = new Company(plugin, file);
-                companies.put(name.toLowerCase(), company);
-                return company;
-            }
         } catch (Exception e) {
             plugin.getLogger().severe("Could not create company: " + name);
             e.printStackTrace();
@@ -244,11 +1111,226 @@ public class CompanyManager {
         Company company = getCompany(name);
         if (company == null) return false;
 
-        File file = new File(companiesFolder,
-                company.getName() + ".yml");
-
         companies.remove(name.toLowerCase());
+        memberships.removeCompany(company);
+        ranking.remove(company);
+        saver.discard(company);
+        registryVersion.incrementAndGet();
+
+        try {
+            store.delete(company.getName());
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not delete company: " + name);
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /*
+     * =========================
+     *   MIGRATION (YAML -> SQL)
+     * =========================
+     */
+
+    // Copies every companies/*.yml file into the active store, replacing
+    // rows with the same name. Safe to run off the main thread.
+    public int migrateFromYaml() throws IOException {
+
+        if (store instanceof YamlCompanyStore) {
+            throw new IllegalStateException("Storage is already YAML.");
+        }
+
+        YamlCompanyStore source = new YamlCompanyStore(companiesFolder);
+
+        List<CompanyData> batch = new ArrayList<>();
+        int migrated = 0;
+
+        for (String name : source.listCompanies()) {
+
+            YamlConfiguration config;
+            try {
+                config = source.load(name);
+            } catch (IOException e) {
+                logLoadFailure(name, e);
+                continue;
+            }
+
+            batch.add(new Company(plugin, store, name, config).toData());
+
+            if (batch.size() >= 500) {
+                store.save(batch);
+                migrated += batch.size();
+                batch.clear();
+            }
+        }
+
+        store.save(batch);
+        migrated += batch.size();
+
+        return migrated;
+    }
+
+    /*
+     * =========================
+     *     IMPORT / EXPORT
+     * =========================
+     */
+
+    // Names that are safe as file names in every store
+    private static final Pattern ARCHIVE_NAME = Pattern.compile("[A-Za-z0-9_][A-Za-z0-9_.-]{0,63}");
+
+    public static final class ImportResult {
+
+        private final int imported;
+        private final int skipped;
+        private final int invalid;
+
+        private ImportResult(int imported, int skipped, int invalid) {
+            this.imported = imported;
+            this.skipped = skipped;
+            this.invalid = invalid;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        // Already existing (without replace) or listed twice
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public int getInvalid() {
+            return invalid;
+        }
+    }
+
+    // Streams every company into an archive (see CompanyArchive), one at
+    // a time. Safe to run off the main thread.
+    public int exportArchive(File file) throws IOException {
+
+        List<Company> snapshot = getCompanies();
+        snapshot.sort(Comparator.comparing(Company::getName, String.CASE_INSENSITIVE_ORDER));
+
+        int exported = 0;
+
+        try (CompanyArchive.Writer writer = new CompanyArchive.Writer(file)) {
+            for (Company company : snapshot) {
+
+                // Lazy mode: a company not parsed yet is read from the store
+                // without loading it into the registry
+                CompanyData data = company.isLoaded()
+                        ? company.toData()
+                        : new Company(plugin, store, company.getName(), store.load(company.getName())).toData();
+
+                writer.write(data);
+                exported++;
+            }
+        }
+
+        return exported;
+    }
+
+    // Reads an archive one company at a time and writes the companies to
+    // the store in batches; existing ones are skipped unless 'replace'.
+    // The registry is updated once at the end, on the main thread, also
+    // when the archive turns out to be broken halfway. Safe to run off
+    // the main thread.
+    public ImportResult importArchive(File file, boolean replace) throws IOException {
+
+        List<Change> changes = new ArrayList<>();
+        List<CompanyData> batch = new ArrayList<>();
+        List<Company> batchCompanies = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int skipped = 0, invalid = 0;
+
+        try (CompanyArchive.Reader reader = new CompanyArchive.Reader(file)) {
 
-        return file.delete();
+            CompanyArchive.Record record;
+            while ((record = reader.next()) != null) {
+
+                String name = record.getName();
+
+                if (!ARCHIVE_NAME.matcher(name).matches()) {
+                    plugin.getLogger().warning("Import: skipping invalid company name '" + name + "'");
+                    invalid++;
+                    continue;
+                }
+
+                if (!seen.add(name.toLowerCase())) {
+                    skipped++;
+                    continue;
+                }
+
+                // Replacing keeps the existing spelling (one file per company)
+                Company existing = getCompany(name);
+                if (existing != null) name = existing.getName();
+
+                if (!replace && (existing != null || store.exists(name))) {
+                    skipped++;
+                    continue;
+                }
+
+                YamlConfiguration config = new YamlConfiguration();
+                try {
+                    config.loadFromString(record.getDocument());
+                } catch (InvalidConfigurationException e) {
+                    plugin.getLogger().warning("Import: invalid document for " + name + ": " + e.getMessage());
+                    invalid++;
+                    continue;
+                }
+
+                Company company = new Company(plugin, store, name, config);
+                batch.add(company.toData());
+                batchCompanies.add(company);
+
+                if (batch.size() >= 500) {
+                    saveImported(batch, batchCompanies, changes);
+                }
+            }
+
+            saveImported(batch, batchCompanies, changes);
+
+        } catch (IOException | RuntimeException e) {
+            // What was read before the failure is still written; the
+            // original error is the one reported
+            try {
+                saveImported(batch, batchCompanies, changes);
+            } catch (IOException | RuntimeException second) {
+                e.addSuppressed(second);
+            }
+            throw e;
+
+        } finally {
+            // Only saved companies, also when the import stopped halfway
+            if (!changes.isEmpty()) applyOnMainThread(changes, "Imported companies", false);
+        }
+
+        return new ImportResult(changes.size(), skipped, invalid);
+    }
+
+    private void saveImported(List<CompanyData> batch, List<Company> companies,
+                              List<Change> saved) throws IOException {
+        if (batch.isEmpty()) return;
+
+        // A flush of a replaced company between here and the apply is seen
+        // there and merged (see applyChanges)
+        synchronized (saver) {
+            List<Change> changes = new ArrayList<>(companies.size());
+            for (Company company : companies) {
+                changes.add(new Change(company.getName(), company, getCompany(company.getName())));
+            }
+
+            store.save(batch);
+
+            for (int i = 0; i < batch.size(); i++) {
+                companies.get(i).stored(batch.get(i));
+            }
+            saved.addAll(changes);
+        }
+
+        batch.clear();
+        companies.clear();
     }
 }
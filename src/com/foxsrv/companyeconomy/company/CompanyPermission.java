@@ -0,0 +1,38 @@
+package com.foxsrv.companyeconomy.company;
+
+public enum CompanyPermission {
+
+    HIRE("can-hire"),
+    FIRE("can-fire"),
+    DEPOSIT("can-deposit"),
+    WITHDRAW("can-withdraw");
+
+    private static final CompanyPermission[] VALUES = values();
+
+    private final String key;
+    private final long bit;
+
+    CompanyPermission(String key) {
+        this.key = key;
+        this.bit = 1L << ordinal();
+    }
+
+    // Key used under groups.<id>.permissions in the company file
+    public String getKey() {
+        return key;
+    }
+
+    long bit() {
+        return bit;
+    }
+
+    public static CompanyPermission fromKey(String key) {
+        if (key == null) return null;
+
+        for (CompanyPermission permission : VALUES) {
+            if (permission.key.equals(key)) return permission;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+package com.foxsrv.companyeconomy.company;
+
+import com.foxsrv.companyeconomy.api.Money;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Leaderboards behind /company top, one RankIndex per order.
+ *
+ * Kept up to date by CompanyManager on every balance and roster change,
+ * so a page never sorts the companies. Like the membership index it only
+ * holds parsed companies (loading.lazy lists the others once parsed).
+ */
+public final class CompanyRanking {
+
+    public enum Order {
+        BALANCE, MEMBERS, PAYROLL
+    }
+
+    // One line of a leaderboard page
+    public static final class Entry {
+
+        private final int position;
+        private final Company company;
+        private final Order order;
+        private final long score;
+
+        private Entry(int position, Company company, Order order, long score) {
+            this.position = position;
+            this.company = company;
+            this.order = order;
+            this.score = score;
+        }
+
+        // 1-based
+        public int getPosition() {
+            return position;
+        }
+
+        public Company getCompany() {
+            return company;
+        }
+
+        // $ for balance and payroll, a count for members
+        public String getValue() {
+            return order == Order.MEMBERS ? String.valueOf(score) : "$" + Money.toMajor(score);
+        }
+    }
+
+    private final Map<Order, RankIndex> indexes = new EnumMap<>(Order.class);
+
+    CompanyRanking() {
+        for (Order order : Order.values()) {
+            indexes.put(order, new RankIndex());
+        }
+    }
+
+    CompanyRanking(Collection<Company> companies) {
+        this();
+        for (Company company : companies) {
+            if (company.isLoaded()) update(company);
+        }
+    }
+
+    public int size() {
+        return indexes.get(Order.BALANCE).size();
+    }
+
+    // Up to 'limit' entries from the 0-based position 'offset'
+    public List<Entry> page(Order order, int offset, int limit) {
+
+        List<Entry> result = new ArrayList<>();
+        int position = offset;
+
+        for (RankIndex.Entry entry : indexes.get(order).page(offset, limit)) {
+            result.add(new Entry(++position, entry.company, order, entry.score));
+        }
+
+        return result;
+    }
+
+    void update(Company company) {
+        updateBalance(company);
+        updateRoster(company);
+    }
+
+    void updateBalance(Company company) {
+        indexes.get(Order.BALANCE).put(company, company::getBalanceMinor);
+    }
+
+    void updateRoster(Company company) {
+        indexes.get(Order.MEMBERS).put(company, company::getEmployeeCount);
+        indexes.get(Order.PAYROLL).put(company, company::getPayrollMinor);
+    }
+
+    void remove(Company company) {
+        for (RankIndex index : indexes.values()) {
+            index.remove(company);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.foxsrv.companyeconomy.company;
+
+import com.foxsrv.companyeconomy.CompanyEconomy;
+import com.foxsrv.companyeconomy.metrics.LatencyHistogram;
+import com.foxsrv.companyeconomy.metrics.Metrics;
+import com.foxsrv.companyeconomy.storage.CompanyConflictException;
+import com.foxsrv.companyeconomy.storage.CompanyData;
+import com.foxsrv.companyeconomy.storage.CompanyJournal;
+import com.foxsrv.companyeconomy.storage.CompanyStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Write-behind persistence.
+ *
+ * Company.save() only marks the company dirty. A background thread
+ * flushes every dirty company once per interval, so any number of
+ * deposits / hires between two flushes cost a single write, and all
+ * companies of one flush go to the store as one batch.
+ *
+ * With the journal enabled, durability between flushes comes from the
+ * journal; compaction periodically folds it into the store.
+ *
+ * With shared storage a company another server changed since it was read
+ * is not written; it is read again and merged (CompanyManager.reloadConflicts),
+ * and the merged copy is written by a later flush.
+ *
+ * The registry snapshot (YAML storage, see RegistrySnapshot) is
+ * rewritten on the same thread every snapshot.interval-seconds.
+ */
+public class CompanySaver {
+
+    private final CompanyEconomy plugin;
+    private final CompanyStore store;
+    private final CompanyJournal journal;
+    private final Set<Company> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService executor;
+
+    private final LongAdder saveCalls;
+    private final LongAdder written;
+    private final LongAdder failures;
+    private final LongAdder conflicts;
+    private final LatencyHistogram flushTime;
+    private final LatencyHistogram compactTime;
+
+    public CompanySaver(CompanyEconomy plugin, CompanyStore store, CompanyJournal journal) {
+        this.plugin = plugin;
+        this.store = store;
+        this.journal = journal;
+
+        Metrics metrics = plugin.getMetrics();
+        this.saveCalls = metrics.counter("save_calls_total",
+                "Company.save() calls (marks the company dirty)");
+        this.written = metrics.counter("companies_written_total",
+                "Company snapshots written to the store");
+        this.failures = metrics.counter("flush_failures_total",
+                "Flushes that could not write to the store");
+        this.conflicts = metrics.counter("write_conflicts_total",
+                "Company writes refused because another server changed the company first");
+        this.flushTime = metrics.timer("flush_seconds",
+                "Time to snapshot and write one batch of dirty companies");
+        this.compactTime = metrics.timer("compact_seconds",
+                "Time to rotate the journal and fold it into the store");
+        metrics.gauge("dirty_companies", "Companies waiting for the next flush", dirty::size);
+
+        long interval = Math.max(1L,
+                plugin.getConfig().getLong("persistence.flush-interval-seconds", 5L));
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "CompanyEconomy-Saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        executor.scheduleWithFixedDelay(this::flushSafely,
+                interval, interval, TimeUnit.SECONDS);
+
+        if (journal != null) {
+            long compactInterval = Math.max(interval,
+                    plugin.getConfig().getLong("journal.compact-interval-seconds", 300L));
+
+            executor.scheduleWithFixedDelay(this::compactSafely,
+                    compactInterval, compactInterval, TimeUnit.SECONDS);
+        }
+
+        long snapshotInterval = plugin.getConfig().getLong("snapshot.interval-seconds", 600L);
+        if (snapshotInterval > 0) {
+            executor.scheduleWithFixedDelay(this::snapshotSafely,
+                    snapshotInterval, snapshotInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    /*
+     * =========================
+     *        DIRTY MARKS
+     * =========================
+     */
+
+    public void markDirty(Company company) {
+        if (company == null || company.isDiscarded()) return;
+
+        saveCalls.increment();
+        dirty.add(company);
+    }
+
+    // Drops a pending write and any later one (used when the company is
+    // deleted or replaced); a stale reference cannot bring the file back
+    public synchronized void discard(Company company) {
+        company.discard();
+        dirty.remove(company);
+    }
+
+    public int getPendingCount() {
+        return dirty.size();
+    }
+
+    boolean isDirty(Company company) {
+        return dirty.contains(company);
+    }
+
+    /*
+     * =========================
+     *          FLUSH
+     * =========================
+     */
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Throwable t) {
+            plugin.getLogger().severe("Company flush failed: " + t.getMessage());
+            t.printStackTrace();
+        }
+    }
+
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (Throwable t) {
+            plugin.getLogger().severe("Journal compaction failed: " + t.getMessage());
+            t.printStackTrace();
+        }
+    }
+
+    private void snapshotSafely() {
+        try {
+            plugin.getCompanyManager().writeSnapshot();
+        } catch (Throwable t) {
+            plugin.getLogger().severe("Could not write the company snapshot: " + t.getMessage());
+            t.printStackTrace();
+        }
+    }
+
+    // compact() on the saver thread
+    public void requestCompaction() {
+        if (!executor.isShutdown()) executor.execute(this::compactSafely);
+    }
+
+    // Seals the journal, writes everything dirty, then drops the sealed segments
+    public synchronized boolean compact() {
+
+        if (journal == null) return flush();
+
+        long start = System.nanoTime();
+
+        try {
+            journal.rotate();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not rotate the company journal: "
+                    + e.getMessage());
+            return false;
+        }
+
+        // A company that could not be snapshotted keeps flush() false, so
+        // the sealed segments holding its changes are never dropped
+        if (!flush()) return false;
+
+        journal.deleteSealed();
+        compactTime.record(System.nanoTime() - start);
+        return true;
+    }
+
+    // True when every dirty company reached the store
+    public synchronized boolean flush() {
+
+        if (dirty.isEmpty()) return true;
+
+        long start = System.nanoTime();
+
+        List<Company> batch = new ArrayList<>(dirty);
+        List<Company> taken = new ArrayList<>(batch.size());
+        List<CompanyData> snapshots = new ArrayList<>(batch.size());
+        int dropped = 0;
+
+        for (Company company : batch) {
+
+            // Removed before the snapshot: a change made during the write marks it again
+            dirty.remove(company);
+
+            // Marked while being discarded
+            if (company.isDiscarded()) {
+                dropped++;
+                continue;
+            }
+
+            try {
+                snapshots.add(company.toData());
+                taken.add(company);
+            } catch (RuntimeException e) {
+                // Kept dirty: its changes live only in memory and the journal
+                dirty.add(company);
+                plugin.getLogger().severe("Could not snapshot company: "
+                        + company.getName() + " (" + e.getMessage() + ")");
+            }
+        }
+
+        try {
+            store.save(snapshots);
+        } catch (CompanyConflictException e) {
+            conflicts.add(e.getConflicts().size());
+            stored(taken, snapshots, new HashSet<>(e.getConflicts()));
+            plugin.getCompanyManager().reloadConflicts(e.getConflicts());
+            flushTime.record(System.nanoTime() - start);
+            return false;
+        } catch (IOException e) {
+            failures.increment();
+            dirty.addAll(taken);
+            plugin.getLogger().severe("Could not save " + taken.size()
+                    + " company(ies), will retry: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+
+        stored(taken, snapshots, Collections.emptySet());
+        flushTime.record(System.nanoTime() - start);
+
+        return taken.size() + dropped == batch.size();
+    }
+
+    private void stored(List<Company> taken, List<CompanyData> snapshots, Set<String> conflicts) {
+
+        int count = 0;
+
+        for (int i = 0; i < taken.size(); i++) {
+            CompanyData data = snapshots.get(i);
+            if (conflicts.contains(data.getName())) continue;
+
+            taken.get(i).stored(data);
+            count++;
+        }
+
+        written.add(count);
+    }
+
+    /*
+     * =========================
+     *        SHUTDOWN
+     * =========================
+     */
+
+    public void shutdown() {
+
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        // Final flush on the calling thread; a conflict (shared storage)
+        // is merged right away on this thread and written by the second one
+        if (!compact()) flush();
+
+        if (!dirty.isEmpty()) {
+            plugin.getLogger().severe(dirty.size()
+                    + " company file(s) could not be saved on shutdown.");
+        }
+    }
+}
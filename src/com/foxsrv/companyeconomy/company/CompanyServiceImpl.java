@@ -0,0 +1,114 @@
+package com.foxsrv.companyeconomy.company;
+
+import com.foxsrv.companyeconomy.api.CompanyService;
+import com.foxsrv.companyeconomy.api.CompanySnapshot;
+import com.foxsrv.companyeconomy.api.TransactionResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+public class CompanyServiceImpl implements CompanyService {
+
+    private final CompanyManager manager;
+
+    public CompanyServiceImpl(CompanyManager manager) {
+        this.manager = manager;
+    }
+
+    /*
+     * =========================
+     *          READS
+     * =========================
+     */
+
+    @Override
+    public Optional<CompanySnapshot> getCompany(String name) {
+        Company company = manager.getCompany(name);
+        return company == null ? Optional.empty() : Optional.of(company.snapshot());
+    }
+
+    @Override
+    public List<String> getCompanyNames() {
+        return manager.getCompanyNames();
+    }
+
+    @Override
+    public List<CompanySnapshot> getCompaniesOf(UUID playerId) {
+        return snapshots(manager.getCompaniesOf(playerId));
+    }
+
+    @Override
+    public List<CompanySnapshot> getCompaniesOf(String playerName) {
+        return snapshots(manager.getCompaniesOf(playerName));
+    }
+
+    private static List<CompanySnapshot> snapshots(List<Company> companies) {
+        List<CompanySnapshot> result = new ArrayList<>();
+        for (Company company : companies) {
+            result.add(company.snapshot());
+        }
+        return result;
+    }
+
+    /*
+     * =========================
+     *         BALANCE
+     * =========================
+     */
+
+    @Override
+    public CompletableFuture<TransactionResult> deposit(String company, long amountMinor) {
+
+        if (amountMinor <= 0) return failed(TransactionResult.Status.INVALID_AMOUNT, 0L);
+
+        Company target = manager.getCompany(company);
+        if (target == null) return failed(TransactionResult.Status.COMPANY_NOT_FOUND, 0L);
+
+        return run(target, () -> {
+            try {
+                return new TransactionResult(TransactionResult.Status.SUCCESS,
+                        target.depositMinor(amountMinor, "api"));
+            } catch (ArithmeticException e) {
+                return new TransactionResult(TransactionResult.Status.OVERFLOW,
+                        target.getBalanceMinor());
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<TransactionResult> withdraw(String company, long amountMinor) {
+
+        if (amountMinor <= 0) return failed(TransactionResult.Status.INVALID_AMOUNT, 0L);
+
+        Company target = manager.getCompany(company);
+        if (target == null) return failed(TransactionResult.Status.COMPANY_NOT_FOUND, 0L);
+
+        return run(target, () -> {
+            boolean ok = target.tryWithdrawMinor(amountMinor, "api");
+            return new TransactionResult(ok
+                    ? TransactionResult.Status.SUCCESS
+                    : TransactionResult.Status.INSUFFICIENT_FUNDS,
+                    target.getBalanceMinor());
+        });
+    }
+
+    // Loaded companies are updated inline; a lazy company is read off the caller's thread
+    private CompletableFuture<TransactionResult> run(
+            Company company, Supplier<TransactionResult> operation) {
+
+        if (company.isLoaded()) {
+            return CompletableFuture.completedFuture(operation.get());
+        }
+
+        return CompletableFuture.supplyAsync(operation);
+    }
+
+    private CompletableFuture<TransactionResult> failed(TransactionResult.Status status,
+                                                        long balanceMinor) {
+        return CompletableFuture.completedFuture(new TransactionResult(status, balanceMinor));
+    }
+}
@@ -0,0 +1,216 @@
+package com.foxsrv.companyeconomy.company;
+
+import com.foxsrv.companyeconomy.storage.CompanyData;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/*
+ * Immutable view of the "groups" section, compiled once when the
+ * company is loaded. Salary and permission checks are array reads
+ * instead of YAML path lookups.
+ */
+public final class GroupTable {
+
+    // Ids above this are resolved by binary search instead of a direct slot array
+    private static final int MAX_DENSE_ID = 1024;
+
+    static final GroupTable EMPTY = new GroupTable(
+            new int[0], new String[0], new double[0], new long[0], new long[0],
+            Collections.emptyList(), Collections.emptyList());
+
+    private final int[] ids;            // sorted ascending
+    private final String[] tags;        // by slot
+    private final double[] salaries;    // by slot
+    private final long[] permissions;   // by slot, CompanyPermission bits
+    private final long[] payIntervals;  // by slot, millis (0 = the company's interval)
+    private final List<Map<String, List<CommandTemplate>>> commands; // by slot, type -> templates
+    private final int[] slotById;       // id -> slot, -1 if missing (null when sparse)
+    private final Map<String, Integer> idByTag;
+    private final List<String> tagList; // config order
+
+    private GroupTable(int[] ids, String[] tags, double[] salaries, long[] permissions,
+                       long[] payIntervals, List<Map<String, List<CommandTemplate>>> commands,
+                       List<Integer> configOrder) {
+        this.ids = ids;
+        this.tags = tags;
+        this.salaries = salaries;
+        this.permissions = permissions;
+        this.payIntervals = payIntervals;
+        this.commands = commands;
+
+        int maxId = ids.length == 0 ? -1 : ids[ids.length - 1];
+
+        if (ids.length > 0 && ids[0] >= 0 && maxId <= MAX_DENSE_ID) {
+            slotById = new int[maxId + 1];
+            Arrays.fill(slotById, -1);
+            for (int slot = 0; slot < ids.length; slot++) {
+                slotById[ids[slot]] = slot;
+            }
+        } else {
+            slotById = null;
+        }
+
+        Map<String, Integer> byTag = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        List<String> tagsInOrder = new ArrayList<>();
+
+        // First group (in config order) wins when two groups share a tag
+        for (int id : configOrder) {
+            String tag = tags[slotOf(id)];
+            if (tag == null) continue;
+
+            tagsInOrder.add(tag);
+            byTag.putIfAbsent(tag, id);
+        }
+
+        this.idByTag = byTag;
+        this.tagList = Collections.unmodifiableList(tagsInOrder);
+    }
+
+    /*
+     * =========================
+     *         COMPILE
+     * =========================
+     */
+
+    static GroupTable compile(ConfigurationSection groups, Logger logger, String companyName) {
+
+        if (groups == null) return EMPTY;
+
+        // id -> section, sorted by id; config order kept separately for tags
+        TreeMap<Integer, ConfigurationSection> byId = new TreeMap<>();
+        List<Integer> configOrder = new ArrayList<>();
+
+        for (String key : groups.getKeys(false)) {
+
+            ConfigurationSection section = groups.getConfigurationSection(key);
+            if (section == null) continue;
+
+            int id;
+            try {
+                id = Integer.parseInt(key.trim());
+            } catch (NumberFormatException e) {
+                logger.warning("Ignoring group '" + key + "' in company "
+                        + companyName + ": id is not a number.");
+                continue;
+            }
+
+            if (byId.putIfAbsent(id, section) == null) {
+                configOrder.add(id);
+            }
+        }
+
+        int size = byId.size();
+        int[] ids = new int[size];
+        String[] tags = new String[size];
+        double[] salaries = new double[size];
+        long[] permissions = new long[size];
+        long[] payIntervals = new long[size];
+        List<Map<String, List<CommandTemplate>>> commands = new ArrayList<>(size);
+
+        int slot = 0;
+        for (Map.Entry<Integer, ConfigurationSection> entry : byId.entrySet()) {
+
+            ConfigurationSection section = entry.getValue();
+
+            ids[slot] = entry.getKey();
+            tags[slot] = section.getString("tag");
+            salaries[slot] = section.getDouble("salary", 0.0);
+
+            long bits = 0L;
+            for (CompanyPermission permission : CompanyPermission.values()) {
+                if (section.getBoolean("permissions." + permission.getKey(), false)) {
+                    bits |= permission.bit();
+                }
+            }
+            permissions[slot] = bits;
+
+            payIntervals[slot] = Math.max(0L, section.getLong("pay-interval-minutes", 0L)) * 60_000L;
+
+            commands.add(CommandTemplate.compileAll(section.getConfigurationSection("commands")));
+
+            slot++;
+        }
+
+        return new GroupTable(ids, tags, salaries, permissions, payIntervals, commands, configOrder);
+    }
+
+    /*
+     * =========================
+     *         LOOKUPS
+     * =========================
+     */
+
+    private int slotOf(int id) {
+        if (slotById != null) {
+            return (id >= 0 && id < slotById.length) ? slotById[id] : -1;
+        }
+
+        int slot = Arrays.binarySearch(ids, id);
+        return slot >= 0 ? slot : -1;
+    }
+
+    public boolean exists(int id) {
+        return slotOf(id) != -1;
+    }
+
+    public double getSalary(int id) {
+        int slot = slotOf(id);
+        return slot == -1 ? 0.0 : salaries[slot];
+    }
+
+    public boolean hasPermission(int id, CompanyPermission permission) {
+        int slot = slotOf(id);
+        return slot != -1 && (permissions[slot] & permission.bit()) != 0L;
+    }
+
+    // Own pay interval in millis, 0 when the group uses the company's
+    public long getPayInterval(int id) {
+        int slot = slotOf(id);
+        return slot == -1 ? 0L : payIntervals[slot];
+    }
+
+    // Distinct intervals over all groups, fallback for groups without their own
+    long[] getPayIntervals(long fallback) {
+        return Arrays.stream(payIntervals)
+                .map(interval -> interval > 0 ? interval : fallback)
+                .distinct().sorted().toArray();
+    }
+
+    public String getTag(int id) {
+        int slot = slotOf(id);
+        return slot == -1 ? null : tags[slot];
+    }
+
+    public int getIdByTag(String tag) {
+        if (tag == null) return -1;
+
+        Integer id = idByTag.get(tag);
+        return id == null ? -1 : id;
+    }
+
+    List<CommandTemplate> getCommands(int id, String type) {
+        int slot = slotOf(id);
+        if (slot == -1) return Collections.emptyList();
+
+        return commands.get(slot).getOrDefault(type, Collections.emptyList());
+    }
+
+    public List<String> getTags() {
+        return tagList;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    List<CompanyData.GroupRow> toRows() {
+        List<CompanyData.GroupRow> rows = new ArrayList<>(ids.length);
+        for (int slot = 0; slot < ids.length; slot++) {
+            rows.add(new CompanyData.GroupRow(
+                    ids[slot], tags[slot], salaries[slot], permissions[slot]));
+        }
+        return rows;
+    }
+}
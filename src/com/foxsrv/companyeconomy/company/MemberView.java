@@ -0,0 +1,96 @@
+package com.foxsrv.companyeconomy.company;
+
+import org.bukkit.ChatColor;
+
+import java.util.*;
+import java.util.function.Function;
+
+/*
+ * Immutable, render-ready member list for /company info.
+ *
+ * Members are sorted by group id, then name, so the members of one role
+ * are a contiguous range and any page of any role is an array slice.
+ * Built on first use after a roster change (see Company.getMemberView).
+ */
+public final class MemberView {
+
+    private final int[] groupIds;   // sorted ascending
+    private final String[] lines;   // pre-rendered, same order
+
+    private MemberView(int[] groupIds, String[] lines) {
+        this.groupIds = groupIds;
+        this.lines = lines;
+    }
+
+    static MemberView build(Roster employees, GroupTable groups, Function<UUID, String> names) {
+
+        List<Map.Entry<String, Integer>> members = new ArrayList<>(employees.size());
+
+        employees.forEach((playerId, groupId) ->
+                members.add(new AbstractMap.SimpleImmutableEntry<>(names.apply(playerId), groupId)));
+
+        members.sort(Map.Entry.<String, Integer>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey(String.CASE_INSENSITIVE_ORDER)));
+
+        // One role label per group instead of one lookup per member
+        Map<Integer, String> labels = new HashMap<>();
+
+        int size = members.size();
+        int[] groupIds = new int[size];
+        String[] lines = new String[size];
+
+        for (int i = 0; i < size; i++) {
+
+            Map.Entry<String, Integer> member = members.get(i);
+            int group = member.getValue();
+
+            String label = labels.computeIfAbsent(group, id -> {
+                String role = groups.getTag(id);
+                return ChatColor.DARK_GRAY + " (" + (role == null ? "Unknown" : role) + ")";
+            });
+
+            groupIds[i] = group;
+            lines[i] = ChatColor.GRAY + "- " + member.getKey() + label;
+        }
+
+        return new MemberView(groupIds, lines);
+    }
+
+    /*
+     * =========================
+     *          QUERY
+     * =========================
+     */
+
+    // Members of one group (all members when groupId is -1)
+    public int count(int groupId) {
+        return groupId == -1 ? lines.length : to(groupId) - from(groupId);
+    }
+
+    public List<String> lines(int groupId, int offset, int limit) {
+
+        int from = groupId == -1 ? 0 : from(groupId);
+        int to = groupId == -1 ? lines.length : to(groupId);
+
+        int start = Math.min(to, from + Math.max(0, offset));
+        int end = Math.min(to, start + Math.max(0, limit));
+
+        return Collections.unmodifiableList(Arrays.asList(lines).subList(start, end));
+    }
+
+    // First index with groupIds[i] >= groupId
+    private int from(int groupId) {
+        int low = 0, high = groupIds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (groupIds[mid] < groupId) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // First index with groupIds[i] > groupId
+    private int to(int groupId) {
+        return groupId == Integer.MAX_VALUE ? groupIds.length : from(groupId + 1);
+    }
+}
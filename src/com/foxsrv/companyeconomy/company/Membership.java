@@ -0,0 +1,27 @@
+package com.foxsrv.companyeconomy.company;
+
+/*
+ * One (company, group) pair a player belongs to.
+ */
+public final class Membership {
+
+    private final Company company;
+    private final int groupId;
+
+    Membership(Company company, int groupId) {
+        this.company = company;
+        this.groupId = groupId;
+    }
+
+    public Company getCompany() {
+        return company;
+    }
+
+    public int getGroupId() {
+        return groupId;
+    }
+
+    public boolean hasPermission(CompanyPermission permission) {
+        return company.getGroups().hasPermission(groupId, permission);
+    }
+}
@@ -0,0 +1,76 @@
+package com.foxsrv.companyeconomy.company;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/*
+ * Reverse index: player -> companies they are employed in.
+ * Memberships are kept in company name order, the same order the
+ * old full scans used, so "first company" answers do not change.
+ *
+ * Written on the main thread only; reads are safe from any thread.
+ */
+final class MembershipIndex {
+
+    // Player uuid -> company name -> membership
+    private final Map<UUID, NavigableMap<String, Membership>> byPlayer = new ConcurrentHashMap<>();
+
+    void addCompany(Company company) {
+        company.forEachEmployee((playerId, groupId) -> put(company, playerId, groupId));
+    }
+
+    // Swaps a reloaded company in: every membership is replaced in place,
+    // so a reader sees the old or the new one, never neither
+    void replaceCompany(Company previous, Company company) {
+
+        company.forEachEmployee((playerId, groupId) -> put(company, playerId, groupId));
+
+        // Not parsed yet (lazy mode): it never had entries here
+        if (!previous.isLoaded()) return;
+
+        previous.forEachEmployee((playerId, groupId) -> {
+            if (!company.isEmployee(playerId)) remove(company, playerId);
+        });
+    }
+
+    void removeCompany(Company company) {
+        company.forEachEmployee((playerId, groupId) -> remove(company, playerId));
+    }
+
+    void put(Company company, UUID playerId, int groupId) {
+        byPlayer.computeIfAbsent(playerId, k -> new ConcurrentSkipListMap<>())
+                .put(company.getName(), new Membership(company, groupId));
+    }
+
+    void remove(Company company, UUID playerId) {
+        NavigableMap<String, Membership> memberships = byPlayer.get(playerId);
+        if (memberships == null) return;
+
+        memberships.remove(company.getName());
+
+        if (memberships.isEmpty()) {
+            byPlayer.remove(playerId);
+        }
+    }
+
+    Collection<Membership> get(UUID playerId) {
+        NavigableMap<String, Membership> memberships = byPlayer.get(playerId);
+        if (memberships == null) return Collections.emptyList();
+
+        return Collections.unmodifiableCollection(memberships.values());
+    }
+
+    Company firstWithPermission(UUID playerId, CompanyPermission permission) {
+        NavigableMap<String, Membership> memberships = byPlayer.get(playerId);
+        if (memberships == null) return null;
+
+        for (Membership membership : memberships.values()) {
+            if (membership.hasPermission(permission)) {
+                return membership.getCompany();
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,153 @@
+package com.foxsrv.companyeconomy.company;
+
+import java.util.*;
+
+/*
+ * When each company pays, on the wall clock.
+ *
+ * One schedule per (company, pay interval): a company whose groups all
+ * use the same interval has one, a group with its own interval adds
+ * another. Schedules sit in a priority queue by due time, so a tick only
+ * looks at the head and touches nothing that is not due.
+ *
+ * Due times are fixed slots (last paid + interval, or a slot spread by
+ * the company name), never "now + interval": a late tick or a restart
+ * pays the missed periods (up to maxCatchUp) and the next slot stays
+ * where it was, so schedules do not drift.
+ */
+final class PayrollScheduler {
+
+    // One schedule that fell due
+    static final class Due {
+
+        final String company;
+        final long interval;
+        final long slot;      // start of the latest period paid
+        final int periods;
+
+        private Due(String company, long interval, long slot, int periods) {
+            this.company = company;
+            this.interval = interval;
+            this.slot = slot;
+            this.periods = periods;
+        }
+    }
+
+    private static final class Schedule {
+
+        private final String company;
+        private final long interval;
+        private long due;
+        private boolean cancelled;
+
+        private Schedule(String company, long interval, long due) {
+            this.company = company;
+            this.interval = interval;
+            this.due = due;
+        }
+    }
+
+    private final long defaultInterval;
+    private final int maxCatchUp;
+    private final boolean spread;
+
+    private final PriorityQueue<Schedule> queue =
+            new PriorityQueue<>(Comparator.comparingLong(schedule -> schedule.due));
+
+    // "company (lowercase)|interval" -> schedule
+    private final Map<String, Schedule> schedules = new HashMap<>();
+
+    PayrollScheduler(long defaultInterval, int maxCatchUp, boolean spread) {
+        this.defaultInterval = defaultInterval;
+        this.maxCatchUp = Math.max(1, maxCatchUp);
+        this.spread = spread;
+    }
+
+    long getDefaultInterval() {
+        return defaultInterval;
+    }
+
+    int size() {
+        return schedules.size();
+    }
+
+    // Drops every schedule; the next sync rebuilds them from the last paid slots
+    void clear() {
+        schedules.clear();
+        queue.clear();
+    }
+
+    // Adds schedules for new companies / intervals and drops the ones that
+    // no longer exist. Only needed after the company registry changed.
+    void sync(Collection<Company> companies, long now) {
+
+        Set<String> live = new HashSet<>();
+
+        for (Company company : companies) {
+
+            // Lazy mode: scheduled once parsed (the registry changes again then)
+            if (!company.isLoaded()) continue;
+
+            for (long interval : company.getPayIntervals(defaultInterval)) {
+
+                String key = key(company.getName(), interval);
+                live.add(key);
+
+                if (schedules.containsKey(key)) continue;
+
+                Schedule schedule = new Schedule(company.getName(), interval,
+                        firstDue(company, interval, now));
+                schedules.put(key, schedule);
+                queue.add(schedule);
+            }
+        }
+
+        schedules.values().removeIf(schedule -> {
+            if (live.contains(key(schedule.company, schedule.interval))) return false;
+            schedule.cancelled = true;
+            return true;
+        });
+
+        queue.removeIf(schedule -> schedule.cancelled);
+    }
+
+    // Every schedule due at 'now', each moved to its next slot
+    List<Due> poll(long now) {
+
+        List<Due> due = new ArrayList<>();
+
+        while (!queue.isEmpty() && queue.peek().due <= now) {
+
+            Schedule schedule = queue.poll();
+
+            long missed = (now - schedule.due) / schedule.interval + 1;
+            long latest = schedule.due + (missed - 1) * schedule.interval;
+
+            due.add(new Due(schedule.company, schedule.interval, latest,
+                    (int) Math.min(maxCatchUp, missed)));
+
+            schedule.due = latest + schedule.interval;
+            queue.add(schedule);
+        }
+
+        return due;
+    }
+
+    private long firstDue(Company company, long interval, long now) {
+
+        long lastPaid = company.getLastPaid(interval);
+        if (lastPaid > 0) return lastPaid + interval;
+
+        // Never paid: the next slot, offset by the company name so
+        // companies do not all pay in the same tick
+        long offset = spread
+                ? Math.floorMod(company.getName().toLowerCase().hashCode() * 0x9E3779B97F4A7C15L, interval)
+                : 0L;
+
+        return now - Math.floorMod(now - offset, interval) + interval;
+    }
+
+    private static String key(String company, long interval) {
+        return company.toLowerCase() + '|' + interval;
+    }
+}
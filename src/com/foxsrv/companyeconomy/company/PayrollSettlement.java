@@ -0,0 +1,159 @@
+package com.foxsrv.companyeconomy.company;
+
+import com.foxsrv.companyeconomy.CompanyEconomy;
+import com.foxsrv.companyeconomy.api.Money;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Pays out a finished payroll cycle: one economy call and one pay-slip
+ * message per player, whatever the number of companies they work for.
+ *
+ * With payroll.async-settlement the economy calls run on a worker thread
+ * (only for economy plugins that are thread-safe); messages are always
+ * sent from the main thread.
+ */
+public class PayrollSettlement {
+
+    private final CompanyEconomy plugin;
+    private final ExecutorService executor;
+
+    public PayrollSettlement(CompanyEconomy plugin) {
+        this.plugin = plugin;
+
+        if (plugin.getConfig().getBoolean("payroll.async-settlement", false)) {
+            this.executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "CompanyEconomy-Settlement");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public void settle(Collection<PaySlip> slips) {
+
+        if (slips.isEmpty()) return;
+
+        if (executor == null) {
+            for (PaySlip slip : slips) {
+                deposit(slip);
+                notify(slip);
+            }
+            return;
+        }
+
+        List<PaySlip> batch = new ArrayList<>(slips);
+
+        // Pay-slips for players who were not paid go out right away
+        for (PaySlip slip : batch) {
+            if (slip.totalMinor <= 0) notify(slip);
+        }
+
+        executor.execute(() -> {
+            for (PaySlip slip : batch) {
+                deposit(slip);
+            }
+
+            if (!plugin.isEnabled()) return;
+
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                for (PaySlip slip : batch) {
+                    if (slip.totalMinor > 0) notify(slip);
+                }
+            });
+        });
+    }
+
+    private void deposit(PaySlip slip) {
+
+        if (slip.totalMinor <= 0) return;
+
+        double total = Money.toMajor(slip.totalMinor);
+        EconomyResponse response = plugin.getEconomy().depositPlayer(slip.player, total);
+
+        if (response != null && !response.transactionSuccess()) {
+            plugin.getLogger().warning("Salary deposit of $" + total + " to "
+                    + slip.player.getName() + " failed: " + response.errorMessage);
+        }
+    }
+
+    private void notify(PaySlip slip) {
+
+        if (!slip.player.isOnline()) return;
+
+        if (slip.totalMinor > 0) {
+
+            String message = ChatColor.GREEN + "You received your salary: $" + Money.toMajor(slip.totalMinor);
+
+            // Breakdown only when several companies paid
+            if (slip.paidBy.size() > 1) {
+                message += ChatColor.GRAY + " (" + String.join(", ", slip.paidBy) + ")";
+            }
+
+            slip.player.sendMessage(message);
+        }
+
+        if (slip.unpaidBy.size() == 1 && slip.totalMinor <= 0) {
+            slip.player.sendMessage(ChatColor.RED +
+                    "You did not receive salary because the company you are employed in has not enough money.");
+
+        } else if (!slip.unpaidBy.isEmpty()) {
+            slip.player.sendMessage(ChatColor.RED + "You did not receive salary from "
+                    + String.join(", ", slip.unpaidBy) + " because they have not enough money.");
+        }
+    }
+
+    // Waits for queued deposits; called on disable
+    public void shutdown() {
+
+        if (executor == null) return;
+
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().severe("Salary deposits were still pending on shutdown.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * =========================
+     *         PAY-SLIP
+     * =========================
+     */
+
+    // Everything one player earned (or missed) in one cycle
+    static final class PaySlip {
+
+        private final Player player;
+        private final List<String> paidBy = new ArrayList<>(1);
+        private final List<String> unpaidBy = new ArrayList<>(0);
+        private long totalMinor;   // cents, converted once for Vault
+
+        PaySlip(Player player) {
+            this.player = player;
+        }
+
+        void paid(Company company, long amountMinor) {
+            totalMinor += amountMinor;
+            paidBy.add(company.getName() + " $" + Money.toMajor(amountMinor));
+        }
+
+        void unpaid(Company company) {
+            unpaidBy.add(company.getName());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.foxsrv.companyeconomy.company;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/*
+ * Companies ordered by one score, highest first (ties by name).
+ *
+ * Indexable skip list: every link also stores how many entries it skips,
+ * so finding the n-th entry is a descent like a search. Updating a score
+ * and jumping to a page are both O(log n); a page then reads its entries
+ * along the bottom level.
+ *
+ * Balance changes can come from any thread, so every operation takes the
+ * index's monitor; they are all short.
+ */
+final class RankIndex {
+
+    private static final int MAX_LEVEL = 32;
+
+    static final class Entry {
+
+        final Company company;
+        final long score;
+
+        private Entry(Company company, long score) {
+            this.company = company;
+            this.score = score;
+        }
+    }
+
+    private static final class Node {
+
+        private final String key;
+        private final long score;
+        private final Company company;
+        private final Node[] next;
+        private final int[] span;    // entries skipped by next[i], the target included
+
+        private Node(String key, long score, Company company, int levels) {
+            this.key = key;
+            this.score = score;
+            this.company = company;
+            this.next = new Node[levels];
+            this.span = new int[levels];
+        }
+    }
+
+    private final Node head = new Node(null, 0L, null, MAX_LEVEL);
+    private final Map<String, Node> nodes = new HashMap<>();
+    private int level = 1;
+
+    synchronized int size() {
+        return nodes.size();
+    }
+
+    // Adds the company or moves it to its new score. The score is read
+    // under the monitor, so racing updates cannot leave a stale one behind.
+    synchronized void put(Company company, LongSupplier value) {
+
+        long score = value.getAsLong();
+        String key = company.getName().toLowerCase();
+        Node current = nodes.get(key);
+
+        if (current != null) {
+            if (current.score == score && current.company == company) return;
+            unlink(current);
+            nodes.remove(key);
+        }
+
+        nodes.put(key, link(key, score, company));
+    }
+
+    synchronized void remove(Company company) {
+
+        String key = company.getName().toLowerCase();
+        Node current = nodes.get(key);
+
+        // A newer instance of the company (reload) is not removed
+        if (current == null || current.company != company) return;
+
+        unlink(current);
+        nodes.remove(key);
+    }
+
+    // Up to 'limit' entries from the 0-based position 'offset'
+    synchronized List<Entry> page(int offset, int limit) {
+
+        List<Entry> result = new ArrayList<>(Math.max(0, Math.min(limit, nodes.size() - offset)));
+        if (offset < 0 || offset >= nodes.size()) return result;
+
+        // Descend to the node at position offset + 1 (head is position 0)
+        Node x = head;
+        int traversed = 0;
+
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= offset + 1) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+        }
+
+        for (; x != null && result.size() < limit; x = x.next[0]) {
+            result.add(new Entry(x.company, x.score));
+        }
+
+        return result;
+    }
+
+    /*
+     * =========================
+     *        SKIP LIST
+     * =========================
+     */
+
+    // Highest score first, then by name
+    private static boolean before(Node node, long score, String key) {
+        return node.score > score || (node.score == score && node.key.compareTo(key) < 0);
+    }
+
+    private Node link(String key, long score, Company company) {
+
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && before(x.next[i], score, key)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int levels = randomLevel();
+
+        if (levels > level) {
+            for (int i = level; i < levels; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = nodes.size();
+            }
+            level = levels;
+        }
+
+        Node node = new Node(key, score, company, levels);
+
+        for (int i = 0; i < levels; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+
+        // Links above the new node now skip one more entry
+        for (int i = levels; i < level; i++) {
+            update[i].span[i]++;
+        }
+
+        return node;
+    }
+
+    private void unlink(Node node) {
+
+        Node[] update = new Node[MAX_LEVEL];
+
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i] != node && before(x.next[i], node.score, node.key)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == node) {
+                update[i].span[i] += node.span[i] - 1;
+                update[i].next[i] = node.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+    }
+
+    // Level n with probability 1/4^(n-1)
+    private static int randomLevel() {
+        int levels = 1;
+        while (levels < MAX_LEVEL && (ThreadLocalRandom.current().nextInt() & 3) == 0) {
+            levels++;
+        }
+        return levels;
+    }
+}
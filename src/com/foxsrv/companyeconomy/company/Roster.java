@@ -0,0 +1,253 @@
+package com.foxsrv.companyeconomy.company;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/*
+ * Employee roster of one company: player uuid -> group id.
+ *
+ * Open addressing over three parallel arrays (uuid halves and group),
+ * linear probing, kept at most half full. No entry objects and no boxing,
+ * so a lookup allocates nothing and a member costs about 40 bytes.
+ *
+ * Reads are optimistic and fall back to a read lock when a write ran
+ * meanwhile; writes take the write lock and update the arrays in place.
+ */
+final class Roster {
+
+    static final int NONE = -1;
+
+    // Marks a free slot; not a valid group id
+    private static final int FREE = Integer.MIN_VALUE;
+
+    interface Visitor {
+        void visit(UUID playerId, int groupId);
+    }
+
+    private final StampedLock lock = new StampedLock();
+
+    private long[] most;
+    private long[] least;
+    private int[] groups;
+    private int size;
+
+    Roster() {
+        allocate(16);
+    }
+
+    /*
+     * =========================
+     *          READ
+     * =========================
+     */
+
+    // Group of the player, NONE when not a member
+    int get(UUID playerId) {
+
+        long msb = playerId.getMostSignificantBits();
+        long lsb = playerId.getLeastSignificantBits();
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            int group = find(msb, lsb);
+            if (lock.validate(stamp)) return group;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return find(msb, lsb);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.tryOptimisticRead();
+        int result = size;
+        if (lock.validate(stamp)) return result;
+
+        stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    UUID[] keys() {
+        long stamp = lock.readLock();
+        try {
+            UUID[] result = new UUID[size];
+            int n = 0;
+            for (int i = 0; i < groups.length; i++) {
+                if (groups[i] != FREE) result[n++] = new UUID(most[i], least[i]);
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    void forEach(Visitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            for (int i = 0; i < groups.length; i++) {
+                if (groups[i] != FREE) visitor.visit(new UUID(most[i], least[i]), groups[i]);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Also runs without the lock (optimistic read): every array is read once
+    // into a local and the probe is bounded, so a racing resize can only
+    // produce a wrong answer, which validate() then discards
+    private int find(long msb, long lsb) {
+
+        long[] m = most;
+        long[] l = least;
+        int[] g = groups;
+
+        int capacity = g.length;
+        if (m.length != capacity || l.length != capacity) return NONE;
+
+        int mask = capacity - 1;
+        int slot = slot(msb, lsb, mask);
+
+        for (int probes = 0; probes < capacity; probes++) {
+            int group = g[slot];
+            if (group == FREE) return NONE;
+            if (m[slot] == msb && l[slot] == lsb) return group;
+            slot = (slot + 1) & mask;
+        }
+
+        return NONE;
+    }
+
+    /*
+     * =========================
+     *          WRITE
+     * =========================
+     */
+
+    void put(UUID playerId, int groupId) {
+
+        if (groupId == FREE) throw new IllegalArgumentException("Invalid group id: " + groupId);
+
+        long msb = playerId.getMostSignificantBits();
+        long lsb = playerId.getLeastSignificantBits();
+
+        long stamp = lock.writeLock();
+        try {
+            int mask = groups.length - 1;
+            int slot = slot(msb, lsb, mask);
+
+            while (groups[slot] != FREE) {
+                if (most[slot] == msb && least[slot] == lsb) {
+                    groups[slot] = groupId;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            most[slot] = msb;
+            least[slot] = lsb;
+            groups[slot] = groupId;
+
+            if (++size * 2 > groups.length) resize(groups.length * 2);
+
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Group the player had, NONE when not a member
+    int remove(UUID playerId) {
+
+        long msb = playerId.getMostSignificantBits();
+        long lsb = playerId.getLeastSignificantBits();
+
+        long stamp = lock.writeLock();
+        try {
+            int mask = groups.length - 1;
+            int slot = slot(msb, lsb, mask);
+
+            while (groups[slot] != FREE) {
+                if (most[slot] == msb && least[slot] == lsb) {
+                    int previous = groups[slot];
+                    delete(slot, mask);
+                    size--;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            return NONE;
+
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Backward-shift deletion: no tombstones, probe chains stay short
+    private void delete(int hole, int mask) {
+
+        int slot = hole;
+
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (groups[slot] == FREE) break;
+
+            int home = slot(most[slot], least[slot], mask);
+
+            // Entry may move into the hole only if its home is not in (hole, slot]
+            boolean movable = hole <= slot
+                    ? home <= hole || home > slot
+                    : home <= hole && home > slot;
+
+            if (movable) {
+                most[hole] = most[slot];
+                least[hole] = least[slot];
+                groups[hole] = groups[slot];
+                hole = slot;
+            }
+        }
+
+        groups[hole] = FREE;
+    }
+
+    private void resize(int capacity) {
+
+        long[] oldMost = most;
+        long[] oldLeast = least;
+        int[] oldGroups = groups;
+
+        allocate(capacity);
+
+        int mask = capacity - 1;
+
+        for (int i = 0; i < oldGroups.length; i++) {
+            if (oldGroups[i] == FREE) continue;
+
+            int slot = slot(oldMost[i], oldLeast[i], mask);
+            while (groups[slot] != FREE) slot = (slot + 1) & mask;
+
+            most[slot] = oldMost[i];
+            least[slot] = oldLeast[i];
+            groups[slot] = oldGroups[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        most = new long[capacity];
+        least = new long[capacity];
+        groups = new int[capacity];
+        Arrays.fill(groups, FREE);
+    }
+
+    private static int slot(long msb, long lsb, int mask) {
+        long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,182 @@
+package com.foxsrv.companyeconomy.company;
+
+import com.foxsrv.companyeconomy.CompanyEconomy;
+import com.foxsrv.companyeconomy.api.Money;
+import com.foxsrv.companyeconomy.metrics.Metrics;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Lazy payroll (payroll.accrual.enabled).
+ *
+ * Instead of walking every roster when a schedule is due, each membership
+ * keeps the time its salary was last settled (members.<uuid>.settled) and
+ * the whole periods elapsed since then are paid when the player joins,
+ * runs /company, or is reached by the sweep over online players. Offline
+ * employees cost nothing until they come back.
+ *
+ * At most payroll.accrual.max-periods are paid at once, older periods are
+ * dropped. When the company cannot pay every period, the ones it can
+ * afford are paid and payroll.accrual.insufficient-funds decides the rest:
+ * "keep" leaves them owed for the next settlement, "forfeit" drops them.
+ */
+public class SalaryAccrual {
+
+    // Online players are settled at most this often by the sweep
+    private static final long SWEEP_MILLIS = 60_000L;
+
+    private final CompanyEconomy plugin;
+    private final long defaultInterval;
+    private final long maxPeriods;
+    private final boolean keepUnpaid;
+    private final PayrollSettlement settlement;
+
+    private final LongAdder paidCount;
+    private final LongAdder skippedCount;
+
+    // Running sweep, null between sweeps
+    private List<Player> sweep;
+    private List<PayrollSettlement.PaySlip> sweepSlips;
+    private int sweepIndex;
+    private long nextSweep;
+
+    public SalaryAccrual(CompanyEconomy plugin) {
+        this.plugin = plugin;
+
+        this.defaultInterval = Math.max(1L,
+                plugin.getConfig().getLong("payroll.interval-minutes", 30L)) * 60_000L;
+
+        this.maxPeriods = Math.max(1L,
+                plugin.getConfig().getLong("payroll.accrual.max-periods", 48L));
+
+        String policy = plugin.getConfig().getString("payroll.accrual.insufficient-funds", "keep");
+        if (!policy.equalsIgnoreCase("keep") && !policy.equalsIgnoreCase("forfeit")) {
+            plugin.getLogger().warning("Unknown payroll.accrual.insufficient-funds '"
+                    + policy + "', using keep.");
+        }
+        this.keepUnpaid = !policy.equalsIgnoreCase("forfeit");
+
+        this.settlement = new PayrollSettlement(plugin);
+
+        Metrics metrics = plugin.getMetrics();
+        this.paidCount = metrics.counter("payroll_paid_total", "Salaries paid");
+        this.skippedCount = metrics.counter("payroll_skipped_total",
+                "Salaries skipped because the company had not enough money");
+    }
+
+    // Join and /company: pays what the player accrued right away
+    public void settle(Player player) {
+
+        PayrollSettlement.PaySlip slip = new PayrollSettlement.PaySlip(player);
+
+        if (settle(player, System.currentTimeMillis(), slip)) {
+            settlement.settle(Collections.singletonList(slip));
+        }
+    }
+
+    // Called by SalaryTask every tick in place of the schedule walk; false when idle
+    boolean tick(long now, long deadline) {
+
+        if (sweep == null) {
+            if (now < nextSweep) return false;
+
+            nextSweep = now + SWEEP_MILLIS;
+            sweep = new ArrayList<>(plugin.getServer().getOnlinePlayers());
+            sweepSlips = new ArrayList<>();
+            sweepIndex = 0;
+        }
+
+        while (sweepIndex < sweep.size()) {
+
+            Player player = sweep.get(sweepIndex++);
+            PayrollSettlement.PaySlip slip = new PayrollSettlement.PaySlip(player);
+
+            if (player.isOnline() && settle(player, now, slip)) sweepSlips.add(slip);
+
+            if (sweepIndex < sweep.size() && System.nanoTime() >= deadline) return true;
+        }
+
+        settlement.settle(sweepSlips);
+
+        sweep = null;
+        sweepSlips = null;
+        return true;
+    }
+
+    // Settles every membership of the player; true when the slip has something to tell
+    private boolean settle(Player player, long now, PayrollSettlement.PaySlip slip) {
+
+        UUID playerId = player.getUniqueId();
+        boolean any = false;
+
+        for (Membership membership : plugin.getCompanyManager().getMemberships(playerId)) {
+
+            Company company = membership.getCompany();
+            int groupId = membership.getGroupId();
+
+            long settled = company.getSettled(playerId);
+
+            // Member from before accrual was enabled: starts now
+            if (settled <= 0) {
+                company.setSettled(playerId, now);
+                continue;
+            }
+
+            long interval = company.getPayInterval(groupId, defaultInterval);
+            long periods = (now - settled) / interval;
+            if (periods <= 0) continue;
+
+            // Beyond the cap: dropped
+            long dropped = Math.max(0L, periods - maxPeriods);
+            settled += dropped * interval;
+            periods -= dropped;
+
+            // Cents, so the company is charged exactly what the player receives
+            long salary = Money.toMinor(company.getSalary(groupId));
+
+            if (salary <= 0) {
+                company.setSettled(playerId, settled + periods * interval);
+                continue;
+            }
+
+            // As many whole periods as the balance covers, withdrawn in one step
+            long paid = periods;
+            while (paid > 0 && !company.tryWithdrawMinor(salary * paid, "salary of " + player.getName())) {
+                paid = Math.min(paid - 1, company.getBalanceMinor() / salary);
+            }
+
+            if (paid > 0) {
+                slip.paid(company, salary * paid);
+                paidCount.add(paid);
+                any = true;
+            }
+
+            if (paid < periods) {
+                slip.unpaid(company);
+                skippedCount.add(periods - paid);
+                any = true;
+            }
+
+            company.setSettled(playerId, settled + (keepUnpaid ? paid : periods) * interval);
+        }
+
+        return any;
+    }
+
+    // Pays out what the running sweep already withdrew, then drains the settlement
+    public void shutdown() {
+
+        if (sweepSlips != null) {
+            settlement.settle(sweepSlips);
+            sweep = null;
+            sweepSlips = null;
+        }
+
+        settlement.shutdown();
+    }
+}
@@ -1,49 +1,368 @@
 package com.foxsrv.companyeconomy.company;
 
 import com.foxsrv.companyeconomy.CompanyEconomy;
+import com.foxsrv.companyeconomy.api.Money;
+import com.foxsrv.companyeconomy.metrics.LatencyHistogram;
+import com.foxsrv.companyeconomy.metrics.Metrics;
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Payroll, spread across ticks.
+ *
+ * Runs every tick. The PayrollScheduler hands over the company
+ * schedules that are due on the wall clock; they join the running batch,
+ * and each tick pays employees until the tick budget is used up, keeping
+ * a cursor (schedule, employee) for the next tick. The roster of a
+ * company is snapshotted when the batch reaches it, so every employee is
+ * visited exactly once per due schedule.
+ *
+ * Company funds are withdrawn chunk by chunk; players are paid once at
+ * the end of the batch with the sum over all their companies.
+ *
+ * With payroll.accrual the schedules are not walked; SalaryAccrual
+ * settles online players instead.
+ *
+ * With shared storage only the server holding the payroll lease starts
+ * batches; a server taking over rebuilds its schedules from the last
+ * paid slots the previous leader stored.
+ */
 public class SalaryTask extends BukkitRunnable {
 
+    // payroll.log-summary: one line per window instead of one per batch
+    private static final long SUMMARY_WINDOW_MILLIS = 10L * 60L * 1000L;
+
     private final CompanyEconomy plugin;
+    private final long budgetNanos;
+    private final PayrollSettlement settlement;
+    private final PayrollScheduler scheduler;
+
+    private final LatencyHistogram sliceTime;
+    private final LatencyHistogram cycleTime;
+    private final LatencyHistogram cycleTicks;
+    private final LongAdder paidCount;
+    private final LongAdder skippedCount;
+
+    private long registryVersion = -1L;
+    private boolean leader = true;
+    private Cycle cycle;
+
+    // payroll.log-summary totals since summaryStart
+    private long summaryStart;
+    private int summaryBatches;
+    private long summaryPaid;
+    private long summarySkipped;
+    private long summaryTotalMinor;
+    private long summaryBusyNanos;
+    private long summaryMaxSliceNanos;
 
     public SalaryTask(CompanyEconomy plugin) {
         this.plugin = plugin;
+
+        long interval = Math.max(1L,
+                plugin.getConfig().getLong("payroll.interval-minutes", 30L)) * 60_000L;
+
+        this.scheduler = new PayrollScheduler(interval,
+                plugin.getConfig().getInt("payroll.max-catch-up-periods", 1),
+                plugin.getConfig().getBoolean("payroll.spread", true));
+
+        this.budgetNanos = Math.max(50L,
+                plugin.getConfig().getLong("payroll.tick-budget-micros", 2000L)) * 1000L;
+
+        this.settlement = new PayrollSettlement(plugin);
+
+        Metrics metrics = plugin.getMetrics();
+        this.sliceTime = metrics.timer("payroll_slice_seconds",
+                "Payroll time spent in one tick");
+        this.cycleTime = metrics.timer("payroll_cycle_seconds",
+                "Payroll busy time of a whole batch of due schedules, summed over its ticks");
+        this.cycleTicks = metrics.histogram("payroll_cycle_ticks",
+                "Ticks a payroll batch was spread over");
+        this.paidCount = metrics.counter("payroll_paid_total", "Salaries paid");
+        this.skippedCount = metrics.counter("payroll_skipped_total",
+                "Salaries skipped because the company had not enough money");
+        metrics.gauge("payroll_schedules", "Company pay schedules", scheduler::size);
     }
 
     @Override
     public void run() {
+        tick(System.currentTimeMillis());
+    }
+
+    // One server tick at wall-clock time 'now' (epoch millis)
+    public void tick(long now) {
+
+        // payroll.accrual: online players are swept, offline ones settle on join
+        SalaryAccrual accrual = plugin.getSalaryAccrual();
+        if (accrual != null) {
+            long start = System.nanoTime();
+            if (accrual.tick(now, start + budgetNanos)) sliceTime.record(System.nanoTime() - start);
+            return;
+        }
+
+        CompanyManager manager = plugin.getCompanyManager();
+
+        boolean leading = manager.isPayrollLeader();
+        if (leading != leader) {
+            leader = leading;
+            if (leading) {
+                scheduler.clear();
+                registryVersion = -1L;
+            }
+        }
+
+        // Another server pays; a running batch still finishes
+        if (!leading && cycle == null) return;
+
+        long version = manager.getRegistryVersion();
+        if (version != registryVersion) {
+            scheduler.sync(manager.getCompanies(), now);
+            registryVersion = version;
+        }
+
+        // Schedules that fall due while a batch runs join it
+        List<PayrollScheduler.Due> due = leading ? scheduler.poll(now) : Collections.emptyList();
+        if (!due.isEmpty()) {
+            if (cycle == null) cycle = new Cycle();
+            cycle.schedules.addAll(due);
+        }
+
+        if (cycle == null) return;
+
+        long start = System.nanoTime();
+        boolean finished = cycle.runSlice(start + budgetNanos);
+        long elapsed = System.nanoTime() - start;
+
+        cycle.ticks++;
+        cycle.busyNanos += elapsed;
+        cycle.maxSliceNanos = Math.max(cycle.maxSliceNanos, elapsed);
+        sliceTime.record(elapsed);
+
+        if (!finished) return;
+
+        settlement.settle(cycle.slips.values());
+
+        cycleTime.record(cycle.busyNanos);
+        cycleTicks.record(cycle.ticks);
+        paidCount.add(cycle.paid);
+        skippedCount.add(cycle.skipped);
+
+        summarize(cycle, now);
+
+        cycle = null;
+    }
+
+    private void summarize(Cycle done, long now) {
+
+        if (!plugin.getConfig().getBoolean("payroll.log-summary", true)) return;
+
+        if (summaryBatches == 0) summaryStart = now;
+
+        summaryBatches++;
+        summaryPaid += done.paid;
+        summarySkipped += done.skipped;
+        summaryTotalMinor += done.totalPaidMinor;
+        summaryBusyNanos += done.busyNanos;
+        summaryMaxSliceNanos = Math.max(summaryMaxSliceNanos, done.maxSliceNanos);
+
+        if (now - summaryStart < SUMMARY_WINDOW_MILLIS && summaryBatches > 1) return;
+
+        plugin.getLogger().info(String.format(
+                "Payroll: %d paid, %d skipped, $%.2f total in %d batch(es), "
+                        + "%.2f ms busy (max %.2f ms/tick)",
+                summaryPaid, summarySkipped, Money.toMajor(summaryTotalMinor), summaryBatches,
+                summaryBusyNanos / 1_000_000.0, summaryMaxSliceNanos / 1_000_000.0));
+
+        summaryBatches = 0;
+        summaryPaid = 0;
+        summarySkipped = 0;
+        summaryTotalMinor = 0L;
+        summaryBusyNanos = 0;
+        summaryMaxSliceNanos = 0;
+    }
+
+    // Pays out what the running batch already withdrew, then drains the settlement
+    public void shutdown() {
+
+        if (cycle != null) {
+            settlement.settle(cycle.slips.values());
+            cycle = null;
+        }
 
-        plugin.getCompanyManager().getCompanies().forEach(company -> {
+        settlement.shutdown();
+    }
+
+    /*
+     * =========================
+     *          CYCLE
+     * =========================
+     */
+
+    private final class Cycle {
+
+        private final List<PayrollScheduler.Due> schedules = new ArrayList<>();
+        private int scheduleIndex;
+
+        private final Map<UUID, PayrollSettlement.PaySlip> slips = new LinkedHashMap<>();
+
+        private PayrollScheduler.Due schedule;
+        private Company company;
+        private UUID[] employees;
+        private int employeeIndex;
+
+        private int ticks;
+        private int paid;
+        private int skipped;
+        private long totalPaidMinor;
+        private long busyNanos;
+        private long maxSliceNanos;
+
+        // True when every schedule of the batch is done
+        private boolean runSlice(long deadline) {
+
+            while (scheduleIndex < schedules.size()) {
+
+                if (employees == null && !startSchedule()) {
+                    scheduleIndex++;
+                    continue;
+                }
+
+                if (!payChunk(deadline)) return false;
+
+                // The slot is paid (even with nobody online), the scheduler
+                // resumes after it; nothing to record for a deleted company
+                if (company != null) company.setLastPaid(schedule.interval, schedule.slot);
+
+                scheduleIndex++;
+                schedule = null;
+                company = null;
+                employees = null;
+
+                if (System.nanoTime() >= deadline) break;
+            }
+
+            return scheduleIndex >= schedules.size();
+        }
+
+        private boolean startSchedule() {
+            schedule = schedules.get(scheduleIndex);
+
+            company = plugin.getCompanyManager().getCompany(schedule.company);
+            if (company == null) return false;
+
+            // Already paid by the previous payroll leader (shared storage)
+            if (company.getLastPaid(schedule.interval) >= schedule.slot) return false;
 
-            company.getEmployees().forEach((playerName, groupId) -> {
+            employees = company.getEmployeeIds();
+            employeeIndex = 0;
+            return true;
+        }
 
-                Player player = Bukkit.getPlayerExact(playerName);
+        // Pays from the cursor until the deadline; true when the company is
+        // done, with 'company' null when it was deleted meanwhile
+        private boolean payChunk(long deadline) {
 
-                // Se offline, não paga
-                if (player == null) return;
+            // Reloaded since the batch reached it: the name cursor stays valid
+            Company current = plugin.getCompanyManager().getCompany(company.getName());
+            company = current;
+            if (current == null) return true;
 
-                double salary = company.getSalary(groupId);
+            List<Payout> payouts = new ArrayList<>();
+            List<Player> unpaid = new ArrayList<>();
+            long chunkTotal;
+            boolean withdrawn;
+            int next;
 
-                if (salary <= 0) return;
+            // Decided against a running balance, then withdrawn in one step;
+            // if the balance moved meanwhile the chunk is decided again, until
+            // the deadline. Cents throughout, so the company is charged exactly
+            // what the players receive.
+            do {
+                payouts.clear();
+                unpaid.clear();
 
-                if (company.getBalance() >= salary) {
+                long available = company.getBalanceMinor();
+                chunkTotal = 0L;
+                next = employeeIndex;
 
-                    plugin.getEconomy().depositPlayer(player, salary);
-                    company.withdraw(salary);
+                while (next < employees.length) {
 
-                    player.sendMessage(ChatColor.GREEN +
-                            "You received your salary: $" + salary);
+                    UUID playerId = employees[next++];
 
-                } else {
+                    // -1 when fired since the roster snapshot
+                    int groupId = company.getEmployeeGroup(playerId);
 
-                    player.sendMessage(ChatColor.RED +
-                            "You did not receive salary because the company you are employed in has not enough money.");
+                    // Groups on another schedule are paid by that one
+                    boolean onSchedule = groupId != -1 && company.getPayInterval(groupId,
+                            scheduler.getDefaultInterval()) == schedule.interval;
+
+                    // Se offline, não paga
+                    Player player = onSchedule ? Bukkit.getPlayer(playerId) : null;
+
+                    if (player != null) {
+
+                        long salary = Money.toMinor(company.getSalary(groupId)) * schedule.periods;
+
+                        if (salary > 0) {
+                            if (available - chunkTotal >= salary) {
+                                payouts.add(new Payout(player, salary));
+                                chunkTotal += salary;
+                            } else {
+                                unpaid.add(player);
+                            }
+                        }
+                    }
+
+                    if (System.nanoTime() >= deadline) break;
                 }
-            });
-        });
+
+                withdrawn = chunkTotal == 0 || company.tryWithdrawMinor(chunkTotal,
+                        "payroll (" + payouts.size() + " employee(s))");
+
+            } while (!withdrawn && System.nanoTime() < deadline);
+
+            // Nothing paid; the chunk is decided again next tick
+            if (!withdrawn) return false;
+
+            employeeIndex = next;
+
+            for (Payout payout : payouts) {
+                slipOf(payout.player).paid(company, payout.amountMinor);
+            }
+
+            for (Player player : unpaid) {
+                slipOf(player).unpaid(company);
+            }
+
+            paid += payouts.size();
+            skipped += unpaid.size();
+            totalPaidMinor += chunkTotal;
+
+            return employeeIndex >= employees.length;
+        }
+
+        private PayrollSettlement.PaySlip slipOf(Player player) {
+            return slips.computeIfAbsent(player.getUniqueId(), id -> new PayrollSettlement.PaySlip(player));
+        }
+    }
+
+    private static final class Payout {
+
+        private final Player player;
+        private final long amountMinor;
+
+        private Payout(Player player, long amountMinor) {
+            this.player = player;
+            this.amountMinor = amountMinor;
+        }
     }
 }
@@ -0,0 +1,142 @@
+package com.foxsrv.companyeconomy.company;
+
+import com.foxsrv.companyeconomy.storage.SharedCompanyStore;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/*
+ * Keeps this server in step with the others on a shared store.
+ *
+ * Every poll interval:
+ *  - renews (or tries to take) the payroll lease; a held lease is only
+ *    trusted for half its length, so a server that stops renewing stops
+ *    paying well before another one may take over;
+ *  - reads the store's change counter and, when it moved, the version of
+ *    every company. Companies whose version differs from the copy in
+ *    memory (and new or deleted ones) go to CompanyManager.syncShared,
+ *    which reads them again and merges unsaved local changes.
+ */
+final class SharedStateSync {
+
+    static final String PAYROLL_LEASE = "payroll";
+
+    private final CompanyManager manager;
+    private final SharedCompanyStore store;
+    private final long leaseMillis;
+    private final Logger logger;
+    private final ScheduledExecutorService executor;
+
+    private long lastChanges = -1L;
+
+    // Versions seen by the last poll, for companies not parsed yet (loading.lazy)
+    private Map<String, Long> seen = Collections.emptyMap();
+
+    SharedStateSync(CompanyManager manager, SharedCompanyStore store,
+                    long pollMillis, long leaseMillis, Logger logger) {
+        this.manager = manager;
+        this.store = store;
+        this.leaseMillis = Math.max(2_000L, leaseMillis);
+        this.logger = logger;
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "CompanyEconomy-Sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = Math.max(100L, pollMillis);
+        executor.scheduleWithFixedDelay(this::runSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (Throwable t) {
+            logger.severe("Shared storage sync failed: " + t.getMessage());
+            t.printStackTrace();
+        }
+    }
+
+    void run() {
+
+        long now = System.currentTimeMillis();
+        long leaseUntil = 0L;
+
+        try {
+            if (store.acquireLease(PAYROLL_LEASE, now, leaseMillis)) leaseUntil = now + leaseMillis / 2;
+        } catch (IOException e) {
+            logger.warning("Could not renew the payroll lease: " + e.getMessage());
+        }
+
+        manager.syncShared(this, leaseUntil);
+    }
+
+    // Companies changed by other servers since the last call; called by
+    // CompanyManager.syncShared with no flush running
+    Collection<String> poll() {
+
+        Map<String, Long> versions;
+
+        try {
+            long changes = store.readChanges();
+            if (changes == lastChanges) return Collections.emptyList();
+
+            versions = store.readVersions();
+            lastChanges = changes;
+
+        } catch (IOException e) {
+            logger.warning("Could not poll the shared store: " + e.getMessage());
+            return Collections.emptyList();
+        }
+
+        List<String> changed = new ArrayList<>();
+
+        for (Map.Entry<String, Long> entry : versions.entrySet()) {
+
+            Company company = manager.getCompany(entry.getKey());
+            long version = entry.getValue();
+
+            if (company == null) {
+                changed.add(entry.getKey());
+            } else if (company.isLoaded()) {
+                if (company.getStoredVersion() != version) changed.add(entry.getKey());
+            } else {
+                Long previous = seen.get(entry.getKey());
+                if (previous != null && previous != version) changed.add(entry.getKey());
+            }
+        }
+
+        // Deleted on another server
+        Set<String> stored = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        stored.addAll(versions.keySet());
+
+        for (Company company : manager.getCompanies()) {
+            if (!stored.contains(company.getName())) changed.add(company.getName());
+        }
+
+        seen = versions;
+        return changed;
+    }
+
+    // Leaves the payroll to another server right away
+    void close() {
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            store.releaseLease(PAYROLL_LEASE);
+        } catch (IOException e) {
+            logger.warning("Could not release the payroll lease: " + e.getMessage());
+        }
+    }
+}
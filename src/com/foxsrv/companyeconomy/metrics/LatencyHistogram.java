@@ -0,0 +1,94 @@
+package com.foxsrv.companyeconomy.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Log-linear histogram (same idea as HdrHistogram): every power of two
+ * is split into 32 linear sub-buckets, so any recorded value is known
+ * within ~3% while the whole long range fits in 1920 counters.
+ *
+ * Recording is one array increment plus three atomic updates, without
+ * allocation or locks.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int SIZE = (64 - SUB_BITS + 1) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SIZE);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0.0 : getSum() / (double) n;
+    }
+
+    // Highest value of the bucket holding the given quantile (0..1)
+    public long getQuantile(double quantile) {
+
+        long total = getCount();
+        if (total == 0) return 0L;
+
+        long target = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0L;
+
+        for (int i = 0; i < SIZE; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(upperBound(i), getMax());
+        }
+
+        return getMax();
+    }
+
+    /*
+     * =========================
+     *         BUCKETS
+     * =========================
+     */
+
+    // Values below SUB map to themselves; above, the top SUB_BITS + 1 bits pick the bucket
+    private static int indexOf(long value) {
+        if (value < SUB) return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int top = (int) (value >>> shift);
+
+        return (shift + 1) * SUB + (top - SUB);
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB) return index;
+
+        int shift = index / SUB - 1;
+        long top = index % SUB + SUB;
+
+        long upper = ((top + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,220 @@
+package com.foxsrv.companyeconomy.metrics;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+ * Plugin-wide metric registry.
+ *
+ * Metrics are created once and then updated without lookups: callers
+ * keep the returned LongAdder / LatencyHistogram in a field. Series with
+ * labels (e.g. one timer per subcommand) are looked up by name + labels.
+ *
+ * Timers record nanoseconds and are exported in seconds.
+ */
+public class Metrics {
+
+    public static final String PREFIX = "companyeconomy_";
+
+    private enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        TIMER("summary"),
+        HISTOGRAM("summary");
+
+        private final String prometheusType;
+
+        Type(String prometheusType) {
+            this.prometheusType = prometheusType;
+        }
+    }
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    /*
+     * =========================
+     *        REGISTRATION
+     * =========================
+     */
+
+    // labels: name/value pairs, e.g. "command", "hire"
+    public LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder) family(name, help, Type.COUNTER)
+                .series.computeIfAbsent(labels(labels), k -> new LongAdder());
+    }
+
+    public LatencyHistogram timer(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, Type.TIMER)
+                .series.computeIfAbsent(labels(labels), k -> new LatencyHistogram());
+    }
+
+    // Unitless values (ticks, batch sizes)
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, Type.HISTOGRAM)
+                .series.computeIfAbsent(labels(labels), k -> new LatencyHistogram());
+    }
+
+    // Replaces an earlier gauge of the same name (components re-created on reload)
+    public void gauge(String name, String help, LongSupplier value) {
+        family(name, help, Type.GAUGE).series.put("", value);
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+
+        if (family.type != type) {
+            throw new IllegalArgumentException(name + " is already a " + family.type);
+        }
+
+        return family;
+    }
+
+    private static String labels(String[] labels) {
+        if (labels.length == 0) return "";
+
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (out.length() > 0) out.append(',');
+            out.append(labels[i]).append("=\"")
+                    .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append('"');
+        }
+        return out.toString();
+    }
+
+    /*
+     * =========================
+     *          EXPORT
+     * =========================
+     */
+
+    // Prometheus text exposition format (version 0.0.4)
+    public String toPrometheus() {
+
+        StringBuilder out = new StringBuilder(4096);
+
+        for (Family family : sorted()) {
+
+            String name = PREFIX + family.name;
+
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type.prometheusType).append('\n');
+
+            for (Map.Entry<String, Object> series : new TreeMap<>(family.series).entrySet()) {
+
+                String labels = series.getKey();
+                Object metric = series.getValue();
+
+                switch (family.type) {
+                    case COUNTER:
+                        sample(out, name, labels, ((LongAdder) metric).sum());
+                        break;
+
+                    case GAUGE:
+                        sample(out, name, labels, ((LongSupplier) metric).getAsLong());
+                        break;
+
+                    default:
+                        LatencyHistogram histogram = (LatencyHistogram) metric;
+                        double scale = family.type == Type.TIMER ? 1e-9 : 1.0;
+
+                        for (double quantile : QUANTILES) {
+                            String withQuantile = (labels.isEmpty() ? "" : labels + ",")
+                                    + "quantile=\"" + quantile + "\"";
+                            sample(out, name, withQuantile, histogram.getQuantile(quantile) * scale);
+                        }
+
+                        sample(out, name + "_sum", labels, histogram.getSum() * scale);
+                        sample(out, name + "_count", labels, histogram.getCount());
+                }
+            }
+        }
+
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ');
+
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+
+        out.append('\n');
+    }
+
+    // One line per series for /company stats; filter matches the metric name
+    public List<String> describe(String filter) {
+
+        List<String> lines = new ArrayList<>();
+
+        for (Family family : sorted()) {
+
+            if (filter != null && !family.name.contains(filter.toLowerCase())) continue;
+
+            for (Map.Entry<String, Object> series : new TreeMap<>(family.series).entrySet()) {
+
+                String label = family.name
+                        + (series.getKey().isEmpty() ? "" : "{" + series.getKey() + "}");
+                Object metric = series.getValue();
+
+                switch (family.type) {
+                    case COUNTER:
+                        lines.add(label + ": " + ((LongAdder) metric).sum());
+                        break;
+
+                    case GAUGE:
+                        lines.add(label + ": " + ((LongSupplier) metric).getAsLong());
+                        break;
+
+                    case TIMER:
+                        LatencyHistogram timer = (LatencyHistogram) metric;
+                        lines.add(String.format("%s: n=%d avg=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                                label, timer.getCount(), timer.getMean() / 1e6,
+                                timer.getQuantile(0.5) / 1e6, timer.getQuantile(0.99) / 1e6,
+                                timer.getMax() / 1e6));
+                        break;
+
+                    default:
+                        LatencyHistogram histogram = (LatencyHistogram) metric;
+                        lines.add(String.format("%s: n=%d avg=%.1f p50=%d p99=%d max=%d",
+                                label, histogram.getCount(), histogram.getMean(),
+                                histogram.getQuantile(0.5), histogram.getQuantile(0.99),
+                                histogram.getMax()));
+                }
+            }
+        }
+
+        return lines;
+    }
+
+    private List<Family> sorted() {
+        List<Family> list = new ArrayList<>(families.values());
+        list.sort(Comparator.comparing(family -> family.name));
+        return list;
+    }
+
+    private static final class Family {
+
+        private final String name;
+        private final String help;
+        private final Type type;
+
+        // labels -> LongAdder / LatencyHistogram / LongSupplier
+        private final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.foxsrv.companyeconomy.metrics;
+
+import com.foxsrv.companyeconomy.CompanyEconomy;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/*
+ * Writes metrics.prom (Prometheus text format) to the plugin folder,
+ * off the main thread. The file is replaced atomically so a scraper
+ * never reads a half-written file.
+ */
+public class MetricsExporter extends BukkitRunnable {
+
+    private final CompanyEconomy plugin;
+    private final File file;
+    private final File temp;
+
+    public MetricsExporter(CompanyEconomy plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "metrics.prom");
+        this.temp = new File(plugin.getDataFolder(), "metrics.prom.tmp");
+    }
+
+    @Override
+    public void run() {
+        try {
+            Files.write(temp.toPath(),
+                    plugin.getMetrics().toPrometheus().getBytes(StandardCharsets.UTF_8));
+
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write metrics.prom: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.foxsrv.companyeconomy.player;
+
+import com.foxsrv.companyeconomy.CompanyEconomy;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+
+import java.util.UUID;
+
+public class PlayerListener implements Listener {
+
+    private final CompanyEconomy plugin;
+
+    public PlayerListener(CompanyEconomy plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        UUID provisional = plugin.getPlayerNames().update(player.getUniqueId(), player.getName());
+
+        // Hired by name before ever joining: move the memberships to the real uuid
+        if (provisional != null) {
+            plugin.getCompanyManager().rekeyEmployee(provisional, player.getUniqueId(), player.getName());
+        }
+
+        // Pays what accrued while offline
+        if (plugin.getSalaryAccrual() != null) {
+            plugin.getSalaryAccrual().settle(player);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.foxsrv.companyeconomy.player;
+
+import org.bukkit.OfflinePlayer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/*
+ * Known player names, sorted case-insensitively.
+ * Filled once from the offline player list on startup and kept
+ * current on join, so tab completion never touches getOfflinePlayers().
+ *
+ * Also the name <-> uuid directory of the company rosters: lookups by
+ * name compare case-insensitively in place, without lowercasing a copy.
+ */
+public class PlayerNameIndex {
+
+    // Name (case-insensitive) -> uuid
+    private final NavigableMap<String, UUID> idByName =
+            new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    // Uuid -> last known name (used to drop the old name after a rename)
+    private final Map<UUID, String> nameById = new ConcurrentHashMap<>();
+
+    public void load(OfflinePlayer[] players) {
+        for (OfflinePlayer player : players) {
+            String name = player.getName();
+            if (name != null) update(player.getUniqueId(), name);
+        }
+    }
+
+    // Returns the provisional uuid this name had until now (see resolve), if any
+    public UUID update(UUID uuid, String name) {
+        if (uuid == null || name == null) return null;
+
+        String previous = nameById.put(uuid, name);
+
+        if (previous != null && !previous.equals(name)) {
+            idByName.remove(previous, uuid);
+        }
+
+        UUID replaced = idByName.put(name, uuid);
+        if (replaced == null || replaced.equals(uuid)) return null;
+
+        String replacedName = nameById.get(replaced);
+        if (replacedName == null || !replaced.equals(offlineUniqueId(replacedName))) return null;
+
+        nameById.remove(replaced);
+        return replaced;
+    }
+
+    // Names stored in company files; never overrides what the server knows
+    public void learn(UUID uuid, String name) {
+        if (uuid == null || name == null) return;
+
+        if (nameById.putIfAbsent(uuid, name) == null) {
+            idByName.putIfAbsent(name, uuid);
+        }
+    }
+
+    public UUID getUniqueId(String name) {
+        if (name == null) return null;
+        return idByName.get(name);
+    }
+
+    public String getName(UUID uuid) {
+        if (uuid == null) return null;
+        return nameById.get(uuid);
+    }
+
+    // Known uuid, or the offline-mode uuid for a name never seen on this
+    // server (rekeyed to the real one when the player first joins)
+    public UUID resolve(String name) {
+        UUID uuid = getUniqueId(name);
+        if (uuid != null) return uuid;
+
+        uuid = offlineUniqueId(name);
+        learn(uuid, name);
+        return uuid;
+    }
+
+    // Same uuid the server gives the player in offline mode
+    public static UUID offlineUniqueId(String name) {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int size() {
+        return idByName.size();
+    }
+
+    /*
+     * =========================
+     *      PREFIX QUERIES
+     * =========================
+     */
+
+    public List<String> complete(String prefix, int limit) {
+
+        if (prefix == null) prefix = "";
+        if (limit <= 0) return Collections.emptyList();
+
+        List<String> result = new ArrayList<>(Math.min(limit, 16));
+
+        for (String name : idByName.tailMap(prefix, true).keySet()) {
+
+            if (!name.regionMatches(true, 0, prefix, 0, prefix.length())) break;
+
+            result.add(name);
+            if (result.size() >= limit) break;
+        }
+
+        return result;
+    }
+}
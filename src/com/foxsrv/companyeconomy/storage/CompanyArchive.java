@@ -0,0 +1,274 @@
+package com.foxsrv.companyeconomy.storage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Export / import archive: newline-delimited JSON, gzip-compressed when
+ * the file name ends with .gz (detected from the content when reading).
+ *
+ * Line 1:  {"format":"companyeconomy-companies","version":1}
+ * Then one line per company:
+ *          {"name":"...","displayName":"...","balance":5000.0,"members":3,"document":"<company YAML>"}
+ *
+ * The document is the whole company file (groups, roster, commands,
+ * payroll state), so nothing is lost between storages; displayName,
+ * balance and members are only there for people reading the archive.
+ * Both sides handle one line at a time.
+ */
+public final class CompanyArchive {
+
+    private static final String FORMAT = "companyeconomy-companies";
+    private static final int VERSION = 1;
+
+    private CompanyArchive() {
+    }
+
+    public static final class Record {
+
+        private final String name;
+        private final String document;
+
+        private Record(String name, String document) {
+            this.name = name;
+            this.document = document;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // The company YAML
+        public String getDocument() {
+            return document;
+        }
+    }
+
+    /*
+     * =========================
+     *          WRITE
+     * =========================
+     */
+
+    public static final class Writer implements Closeable {
+
+        private final java.io.Writer out;
+        private final StringBuilder line = new StringBuilder(4096);
+
+        public Writer(File file) throws IOException {
+            OutputStream stream = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+            if (file.getName().endsWith(".gz")) stream = new GZIPOutputStream(stream, 1 << 16);
+
+            this.out = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+
+            out.write("{\"format\":\"" + FORMAT + "\",\"version\":" + VERSION + "}\n");
+        }
+
+        public void write(CompanyData data) throws IOException {
+            line.setLength(0);
+            line.append("{\"name\":");
+            quote(data.getName());
+            line.append(",\"displayName\":");
+            quote(data.getDisplayName());
+            line.append(",\"balance\":").append(data.getBalance());
+            line.append(",\"members\":").append(data.getMembers().size());
+            line.append(",\"document\":");
+            quote(data.getDocument());
+            line.append("}\n");
+
+            out.write(line.toString());
+        }
+
+        private void quote(String value) {
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"': line.append("\\\""); break;
+                    case '\\': line.append("\\\\"); break;
+                    case '\n': line.append("\\n"); break;
+                    case '\r': line.append("\\r"); break;
+                    case '\t': line.append("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            line.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            line.append(c);
+                        }
+                }
+            }
+            line.append('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /*
+     * =========================
+     *           READ
+     * =========================
+     */
+
+    public static final class Reader implements Closeable {
+
+        private final BufferedReader in;
+        private int lineNumber;
+
+        public Reader(File file) throws IOException {
+            InputStream stream = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+
+            // gzip magic number
+            stream.mark(2);
+            boolean gzip = stream.read() == 0x1f && stream.read() == 0x8b;
+            stream.reset();
+
+            if (gzip) stream = new GZIPInputStream(stream, 1 << 16);
+
+            this.in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 1 << 16);
+
+            Map<String, String> header = parse(nextLine());
+            if (header == null || !FORMAT.equals(header.get("format"))) {
+                throw new IOException(file.getName() + " is not a company archive");
+            }
+
+            int version = Integer.parseInt(header.getOrDefault("version", "0"));
+            if (version > VERSION) {
+                throw new IOException(file.getName() + " was written by a newer version (" + version + ")");
+            }
+        }
+
+        // Next company, null at the end
+        public Record next() throws IOException {
+
+            String line;
+            do {
+                line = nextLine();
+                if (line == null) return null;
+            } while (line.isBlank());
+
+            Map<String, String> fields = parse(line);
+
+            String name = fields.get("name");
+            String document = fields.get("document");
+
+            if (name == null || document == null) {
+                throw new IOException("Line " + lineNumber + ": name or document missing");
+            }
+
+            return new Record(name, document);
+        }
+
+        private String nextLine() throws IOException {
+            String line = in.readLine();
+            if (line != null) lineNumber++;
+            return line;
+        }
+
+        // One flat object: string, number and literal values, all as strings
+        private Map<String, String> parse(String line) throws IOException {
+
+            if (line == null) return null;
+
+            Map<String, String> fields = new HashMap<>();
+            int[] at = {skip(line, 0)};
+
+            expect(line, at, '{');
+            at[0] = skip(line, at[0]);
+
+            if (at[0] < line.length() && line.charAt(at[0]) == '}') return fields;
+
+            while (true) {
+                at[0] = skip(line, at[0]);
+                String key = string(line, at);
+
+                at[0] = skip(line, at[0]);
+                expect(line, at, ':');
+                at[0] = skip(line, at[0]);
+
+                String value;
+                if (at[0] < line.length() && line.charAt(at[0]) == '"') {
+                    value = string(line, at);
+                } else {
+                    int start = at[0];
+                    while (at[0] < line.length() && ",} \t".indexOf(line.charAt(at[0])) < 0) at[0]++;
+                    value = line.substring(start, at[0]);
+                }
+
+                fields.put(key, value);
+
+                at[0] = skip(line, at[0]);
+                if (at[0] >= line.length()) throw error("unexpected end of line");
+
+                char c = line.charAt(at[0]++);
+                if (c == '}') return fields;
+                if (c != ',') throw error("expected , or }");
+            }
+        }
+
+        private String string(String line, int[] at) throws IOException {
+
+            expect(line, at, '"');
+            StringBuilder value = new StringBuilder();
+
+            while (at[0] < line.length()) {
+                char c = line.charAt(at[0]++);
+
+                if (c == '"') return value.toString();
+
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+
+                if (at[0] >= line.length()) break;
+                char escaped = line.charAt(at[0]++);
+
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (at[0] + 4 > line.length()) throw error("bad \\u escape");
+                        try {
+                            value.append((char) Integer.parseInt(line.substring(at[0], at[0] + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("bad \\u escape");
+                        }
+                        at[0] += 4;
+                        break;
+                    default: value.append(escaped);   // \" \\ \/
+                }
+            }
+
+            throw error("unterminated string");
+        }
+
+        private void expect(String line, int[] at, char c) throws IOException {
+            if (at[0] >= line.length() || line.charAt(at[0]) != c) throw error("expected " + c);
+            at[0]++;
+        }
+
+        private static int skip(String line, int at) {
+            while (at < line.length() && Character.isWhitespace(line.charAt(at))) at++;
+            return at;
+        }
+
+        private IOException error(String message) {
+            return new IOException("Line " + lineNumber + ": " + message);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.foxsrv.companyeconomy.storage;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Thrown by a versioned save when another server changed some of the
+ * companies since they were read. Every other company of the batch was
+ * written.
+ */
+public class CompanyConflictException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> conflicts;
+
+    public CompanyConflictException(List<String> conflicts) {
+        super(conflicts.size() + " company(ies) changed on another server: " + conflicts);
+        this.conflicts = Collections.unmodifiableList(conflicts);
+    }
+
+    public List<String> getConflicts() {
+        return conflicts;
+    }
+}
@@ -0,0 +1,133 @@
+package com.foxsrv.companyeconomy.storage;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Immutable copy of a company taken for persistence. The store fills in
+ * the version it wrote the copy as.
+ */
+public final class CompanyData {
+
+    private final String name;
+    private final String displayName;
+    private final double balance;
+    private final String document;
+    private final List<MemberRow> members;
+    private final List<GroupRow> groups;
+    private final long version;
+
+    private volatile long writtenVersion;
+
+    public CompanyData(String name, String displayName, double balance,
+                       String document, List<MemberRow> members,
+                       List<GroupRow> groups, long version) {
+        this.name = name;
+        this.displayName = displayName;
+        this.balance = balance;
+        this.document = document;
+        this.members = Collections.unmodifiableList(members);
+        this.groups = Collections.unmodifiableList(groups);
+        this.version = version;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+
+    // Full YAML document, the source of truth for everything else
+    public String getDocument() {
+        return document;
+    }
+
+    // One row per roster entry (uuid), as in the document
+    public List<MemberRow> getMembers() {
+        return members;
+    }
+
+    public List<GroupRow> getGroups() {
+        return groups;
+    }
+
+    // Version of the stored row this copy was derived from; 0 writes it
+    // unconditionally (a new company, or one never read from a versioned store)
+    public long getVersion() {
+        return version;
+    }
+
+    // Version the store wrote it as, 0 before the write or when unversioned
+    public long getWrittenVersion() {
+        return writtenVersion;
+    }
+
+    void setWrittenVersion(long writtenVersion) {
+        this.writtenVersion = writtenVersion;
+    }
+
+    public static final class MemberRow {
+
+        private final UUID playerId;
+        private final String name;
+        private final int groupId;
+
+        public MemberRow(UUID playerId, String name, int groupId) {
+            this.playerId = playerId;
+            this.name = name;
+            this.groupId = groupId;
+        }
+
+        public UUID getPlayerId() {
+            return playerId;
+        }
+
+        // Last known name; two rows may share it (renamed or provisional players)
+        public String getName() {
+            return name;
+        }
+
+        public int getGroupId() {
+            return groupId;
+        }
+    }
+
+    public static final class GroupRow {
+
+        private final int id;
+        private final String tag;
+        private final double salary;
+        private final long permissions;
+
+        public GroupRow(int id, String tag, double salary, long permissions) {
+            this.id = id;
+            this.tag = tag;
+            this.salary = salary;
+            this.permissions = permissions;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public double getSalary() {
+            return salary;
+        }
+
+        // CompanyPermission bits
+        public long getPermissions() {
+            return permissions;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.foxsrv.companyeconomy.storage;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+// A company document with the version of the row it was read from
+public final class CompanyDocument {
+
+    private final YamlConfiguration config;
+    private final long version;
+
+    public CompanyDocument(YamlConfiguration config, long version) {
+        this.config = config;
+        this.version = version;
+    }
+
+    public YamlConfiguration getConfig() {
+        return config;
+    }
+
+    // 0 when the store does not version its documents
+    public long getVersion() {
+        return version;
+    }
+}
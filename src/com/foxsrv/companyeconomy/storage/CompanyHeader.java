@@ -0,0 +1,20 @@
+package com.foxsrv.companyeconomy.storage;
+
+public final class CompanyHeader {
+
+    private final String displayName;
+    private final double balance;
+
+    public CompanyHeader(String displayName, double balance) {
+        this.displayName = displayName;
+        this.balance = balance;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+}
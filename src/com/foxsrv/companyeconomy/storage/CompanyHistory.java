@@ -0,0 +1,209 @@
+package com.foxsrv.companyeconomy.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/*
+ * Transaction history of every company (see TransactionLog), under
+ * history/<company>/.
+ *
+ * Recording only touches memory; a background thread opens each log,
+ * writes the new transactions of every company each flush interval, and
+ * earlier when a company's ring is half full of unwritten ones.
+ */
+public class CompanyHistory {
+
+    private final File folder;
+    private final int memoryEntries;
+    private final int segmentEntries;
+    private final int maxSegments;
+    private final Logger logger;
+    private final ScheduledExecutorService writer;
+
+    // Lowercase company name -> its history, opened on first use
+    private final Map<String, Handle> handles = new ConcurrentHashMap<>();
+
+    public CompanyHistory(File folder, int memoryEntries, int segmentEntries, int maxSegments,
+                          long flushIntervalMillis, Logger logger) throws IOException {
+        this.folder = folder;
+        this.memoryEntries = Math.max(1, memoryEntries);
+        this.segmentEntries = segmentEntries;
+        this.maxSegments = maxSegments;
+        this.logger = logger;
+
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+
+        long interval = Math.max(100L, flushIntervalMillis);
+
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "CompanyEconomy-History");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        writer.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void record(String company, Transaction transaction) {
+
+        Handle handle = handle(company);
+        TransactionLog log = handle.log;
+
+        // Kept in order until the log is open on the history thread
+        if (log == null) {
+            synchronized (handle) {
+                log = handle.log;
+                if (log == null) {
+                    if (!handle.opened.isDone()) handle.early.add(transaction);
+                    return;
+                }
+            }
+        }
+
+        log.append(transaction);
+
+        // Written before the ring wraps over transactions not on disk yet
+        if (log.pendingCount() == memoryEntries / 2 + 1) {
+            TransactionLog full = log;
+            try {
+                writer.execute(() -> flushSafely(company, full));
+            } catch (RejectedExecutionException closed) {
+                // close() writes it
+            }
+        }
+    }
+
+    // Whether the company's log is open, so the calls below answer from memory
+    public boolean isOpen(String company) {
+        return handle(company).log != null;
+    }
+
+    // Transactions the company has on record (memory and disk); waits for
+    // the log to open, so only from the main thread once isOpen()
+    public long count(String company) {
+        TransactionLog log = opened(company);
+        return log == null ? 0L : log.size();
+    }
+
+    // Newest first, skipping the 'skip' newest; null when the log is not
+    // open yet or part of the page is only on disk, which read() then has
+    // to load (not on the main thread)
+    public List<Transaction> readMemory(String company, long skip, int limit) {
+        TransactionLog log = handle(company).log;
+        return log == null ? null : log.readMemory(skip, limit);
+    }
+
+    public List<Transaction> read(String company, long skip, int limit) throws IOException {
+        TransactionLog log = opened(company);
+        return log == null ? Collections.emptyList() : log.read(skip, limit);
+    }
+
+    private TransactionLog opened(String company) {
+        return handle(company).opened.join();
+    }
+
+    // Opening reads the segment indexes (and may cut a torn one), so it
+    // runs on the history thread, never inside the map or on the caller
+    private Handle handle(String company) {
+
+        String key = company.toLowerCase();
+
+        Handle handle = handles.get(key);
+        if (handle != null) return handle;
+
+        Handle created = new Handle();
+        handle = handles.putIfAbsent(key, created);
+        if (handle != null) return handle;
+
+        try {
+            writer.execute(() -> open(company, key, created));
+        } catch (RejectedExecutionException closed) {
+            created.opened.complete(null);
+        }
+
+        return created;
+    }
+
+    private void open(String company, String key, Handle handle) {
+
+        TransactionLog log = null;
+
+        try {
+            log = new TransactionLog(new File(folder, key), memoryEntries, segmentEntries, maxSegments);
+        } catch (IOException e) {
+            logger.severe("Could not open the history of " + company + ": " + e.getMessage());
+        }
+
+        synchronized (handle) {
+            if (log != null) {
+                for (Transaction transaction : handle.early) {
+                    log.append(transaction);
+                }
+            }
+
+            handle.early.clear();
+            handle.log = log;
+            handle.opened.complete(log);
+        }
+    }
+
+    private static final class Handle {
+
+        private volatile TransactionLog log;
+
+        // Recorded before the log was open, guarded by the handle
+        private final List<Transaction> early = new ArrayList<>();
+
+        // Completed with the log, or null when it could not be opened
+        private final CompletableFuture<TransactionLog> opened = new CompletableFuture<>();
+    }
+
+    /*
+     * =========================
+     *          FLUSH
+     * =========================
+     */
+
+    private void flushSafely() {
+        handles.forEach((company, handle) -> {
+            TransactionLog log = handle.log;
+            if (log != null) flushSafely(company, log);
+        });
+    }
+
+    private void flushSafely(String company, TransactionLog log) {
+        try {
+            log.flush();
+        } catch (IOException e) {
+            logger.severe("Could not write the history of " + company + ": " + e.getMessage());
+        }
+    }
+
+    // Writes everything still in memory; called on disable
+    public void close() {
+        writer.shutdown();
+
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.severe("Company history writes were still pending on shutdown.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flushSafely();
+    }
+}
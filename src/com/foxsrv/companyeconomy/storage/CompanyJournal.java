@@ -0,0 +1,403 @@
+package com.foxsrv.companyeconomy.storage;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only journal of balance, roster and payroll changes.
+ *
+ * Every record holds the resulting value (new balance in minor units,
+ * new group), so replaying a record over a snapshot that already
+ * contains it is harmless. Appends only go to a memory buffer; a background thread
+ * writes and fsyncs the buffer every fsync interval.
+ *
+ * Layout: journal/journal-<seq>.log, one open segment at a time.
+ * Record: [int length][payload][int crc32]. A torn record at the end
+ * of a segment (crash mid-write) is ignored on replay.
+ */
+public class CompanyJournal {
+
+    private static final byte BALANCE = 1;
+    private static final byte MEMBER = 2;
+    private static final byte REMOVAL = 3;
+    private static final byte LAST_PAID = 4;
+    private static final byte SETTLED = 5;
+
+    public interface Replayer {
+
+        void balance(String company, long balanceMinor);
+
+        // playerName may be null
+        void member(String company, UUID playerId, String playerName, int groupId);
+
+        void removal(String company, UUID playerId);
+
+        // Payroll slot paid for an interval (milliseconds)
+        void lastPaid(String company, long interval, long time);
+
+        // Salary of a member settled up to 'time'
+        void settled(String company, UUID playerId, long time);
+    }
+
+    private final File folder;
+    private final Logger logger;
+    private final ScheduledExecutorService syncer;
+
+    // Reused for every record, guarded by this
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(128);
+    private final DataOutputStream record = new DataOutputStream(recordBuffer);
+    private final CRC32 crc = new CRC32();
+
+    private long sequence;
+    private FileOutputStream file;
+    private DataOutputStream out;
+
+    public CompanyJournal(File folder, long fsyncIntervalMillis, Logger logger) throws IOException {
+        this.folder = folder;
+        this.logger = logger;
+
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+
+        // Never append to a segment left by a previous run
+        List<File> existing = segments();
+        sequence = existing.isEmpty() ? 0 : sequenceOf(existing.get(existing.size() - 1));
+        openSegment(sequence + 1);
+
+        long interval = Math.max(10L, fsyncIntervalMillis);
+
+        this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "CompanyEconomy-Journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        syncer.scheduleWithFixedDelay(this::syncSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * =========================
+     *          APPEND
+     * =========================
+     */
+
+    // The balance is read under the journal lock, so concurrent updates
+    // of one company are always recorded in the order they are read
+    public synchronized void appendBalance(String company, LongSupplier balanceMinor) {
+        try {
+            record.writeByte(BALANCE);
+            record.writeUTF(company);
+            record.writeLong(balanceMinor.getAsLong());
+            commitRecord();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    public synchronized void appendMember(String company, UUID playerId, String playerName, int groupId) {
+        try {
+            record.writeByte(MEMBER);
+            record.writeUTF(company);
+            record.writeLong(playerId.getMostSignificantBits());
+            record.writeLong(playerId.getLeastSignificantBits());
+            record.writeUTF(playerName == null ? "" : playerName);
+            record.writeInt(groupId);
+            commitRecord();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    public synchronized void appendRemoval(String company, UUID playerId) {
+        try {
+            record.writeByte(REMOVAL);
+            record.writeUTF(company);
+            record.writeLong(playerId.getMostSignificantBits());
+            record.writeLong(playerId.getLeastSignificantBits());
+            commitRecord();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    public synchronized void appendLastPaid(String company, long interval, long time) {
+        try {
+            record.writeByte(LAST_PAID);
+            record.writeUTF(company);
+            record.writeLong(interval);
+            record.writeLong(time);
+            commitRecord();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    public synchronized void appendSettled(String company, UUID playerId, long time) {
+        try {
+            record.writeByte(SETTLED);
+            record.writeUTF(company);
+            record.writeLong(playerId.getMostSignificantBits());
+            record.writeLong(playerId.getLeastSignificantBits());
+            record.writeLong(time);
+            commitRecord();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    private void commitRecord() throws IOException {
+        try {
+            if (out == null) throw new IOException("journal is closed");
+
+            byte[] payload = recordBuffer.toByteArray();
+
+            crc.reset();
+            crc.update(payload, 0, payload.length);
+
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeInt((int) crc.getValue());
+        } finally {
+            recordBuffer.reset();
+        }
+    }
+
+    private void failed(IOException e) {
+        recordBuffer.reset();
+        logger.severe("Could not append to company journal: " + e.getMessage());
+    }
+
+    /*
+     * =========================
+     *           SYNC
+     * =========================
+     */
+
+    private void syncSafely() {
+        try {
+            sync();
+        } catch (IOException e) {
+            logger.severe("Could not sync company journal: " + e.getMessage());
+        }
+    }
+
+    public void sync() throws IOException {
+
+        FileChannel channel;
+
+        synchronized (this) {
+            if (out == null) return;
+            out.flush();
+            channel = file.getChannel();
+        }
+
+        // fsync outside the lock so appends are never blocked by the disk
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            // Segment was rotated meanwhile; rotate() already forced it
+            if (channel.isOpen()) throw e;
+        }
+    }
+
+    /*
+     * =========================
+     *    ROTATION / COMPACTION
+     * =========================
+     */
+
+    // Seals the current segment and starts a new one
+    public synchronized void rotate() throws IOException {
+        closeSegment();
+        openSegment(sequence + 1);
+    }
+
+    // Deletes every sealed segment; call only once their changes are in the store
+    public void deleteSealed() {
+        long current;
+        synchronized (this) {
+            current = sequence;
+        }
+
+        for (File segment : segments()) {
+            if (sequenceOf(segment) < current && !segment.delete()) {
+                logger.warning("Could not delete journal segment " + segment.getName());
+            }
+        }
+    }
+
+    /*
+     * =========================
+     *          REPLAY
+     * =========================
+     */
+
+    // Replays every sealed segment in order, returns the number of records applied
+    public int replay(Replayer replayer) {
+
+        long current;
+        synchronized (this) {
+            current = sequence;
+        }
+
+        int applied = 0;
+
+        for (File segment : segments()) {
+            if (sequenceOf(segment) >= current) continue;
+            applied += replaySegment(segment, replayer);
+        }
+
+        return applied;
+    }
+
+    private int replaySegment(File segment, Replayer replayer) {
+
+        int applied = 0;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(segment)))) {
+
+            CRC32 check = new CRC32();
+
+            while (true) {
+
+                int length;
+                byte[] payload;
+                int expected;
+
+                try {
+                    length = in.readInt();
+                    if (length <= 0 || length > 1 << 20) break;
+
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    expected = in.readInt();
+                } catch (EOFException tornTail) {
+                    break;
+                }
+
+                check.reset();
+                check.update(payload, 0, length);
+
+                if ((int) check.getValue() != expected) {
+                    logger.warning("Corrupt record in " + segment.getName()
+                            + ", ignoring the rest of the segment.");
+                    break;
+                }
+
+                DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+
+                switch (data.readByte()) {
+                    case BALANCE:
+                        replayer.balance(data.readUTF(), data.readLong());
+                        break;
+                    case MEMBER: {
+                        String company = data.readUTF();
+                        UUID playerId = new UUID(data.readLong(), data.readLong());
+                        String playerName = data.readUTF();
+                        replayer.member(company, playerId,
+                                playerName.isEmpty() ? null : playerName, data.readInt());
+                        break;
+                    }
+                    case REMOVAL:
+                        replayer.removal(data.readUTF(), new UUID(data.readLong(), data.readLong()));
+                        break;
+                    case LAST_PAID:
+                        replayer.lastPaid(data.readUTF(), data.readLong(), data.readLong());
+                        break;
+                    case SETTLED:
+                        replayer.settled(data.readUTF(), new UUID(data.readLong(), data.readLong()), data.readLong());
+                        break;
+                    default:
+                        continue;
+                }
+
+                applied++;
+            }
+
+        } catch (IOException e) {
+            logger.severe("Could not replay journal segment " + segment.getName()
+                    + ": " + e.getMessage());
+        }
+
+        return applied;
+    }
+
+    /*
+     * =========================
+     *         SEGMENTS
+     * =========================
+     */
+
+    private void openSegment(long seq) throws IOException {
+        sequence = seq;
+        file = new FileOutputStream(new File(folder, "journal-" + seq + ".log"), true);
+        out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+    }
+
+    private void closeSegment() throws IOException {
+        if (out == null) return;
+
+        out.flush();
+        file.getChannel().force(false);
+        out.close();
+
+        out = null;
+        file = null;
+    }
+
+    private List<File> segments() {
+
+        List<File> result = new ArrayList<>();
+
+        File[] files = folder.listFiles((dir, name) ->
+                name.startsWith("journal-") && name.endsWith(".log"));
+
+        if (files == null) return result;
+
+        for (File segment : files) {
+            if (sequenceOf(segment) >= 0) result.add(segment);
+        }
+
+        result.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+        return result;
+    }
+
+    private static long sequenceOf(File segment) {
+        String name = segment.getName();
+        try {
+            return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public void close() {
+
+        syncer.shutdown();
+
+        try {
+            syncer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            try {
+                closeSegment();
+            } catch (IOException e) {
+                logger.severe("Could not close company journal: " + e.getMessage());
+            }
+        }
+    }
+}
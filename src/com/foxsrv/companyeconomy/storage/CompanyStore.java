@@ -0,0 +1,56 @@
+package com.foxsrv.companyeconomy.storage;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * Where company documents live.
+ *
+ * A company is still edited in memory as a YamlConfiguration; a store
+ * only decides how that document (plus its balance, groups and roster)
+ * is read and written. Implementations must be safe to call from the
+ * loader and saver threads.
+ */
+public interface CompanyStore {
+
+    String getType();
+
+    void open() throws IOException;
+
+    void close();
+
+    List<String> listCompanies() throws IOException;
+
+    boolean exists(String name) throws IOException;
+
+    YamlConfiguration load(String name) throws IOException;
+
+    // Document plus the version it was read at, the base of a later save
+    default CompanyDocument loadDocument(String name) throws IOException {
+        return new CompanyDocument(load(name), 0L);
+    }
+
+    // Cheap header read for lazy loading; null when the store has no cheaper path
+    CompanyHeader loadHeader(String name) throws IOException;
+
+    // True when the stored document is not what this store last read or
+    // wrote (edited by hand, created or deleted). Stores that cannot tell say true.
+    default boolean hasChanged(String name) throws IOException {
+        return true;
+    }
+
+    // Versioned stores write a company only if its row is still at
+    // CompanyData.getVersion(); the others are reported through a
+    // CompanyConflictException once the rest of the batch is written.
+    void save(Collection<CompanyData> companies) throws IOException;
+
+    // Shared between servers (storage.type: shared)
+    default boolean isShared() {
+        return false;
+    }
+
+    void delete(String name) throws IOException;
+}
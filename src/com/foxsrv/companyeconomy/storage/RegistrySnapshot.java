@@ -0,0 +1,372 @@
+package com.foxsrv.companyeconomy.storage;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * Binary copy of every company document, read at startup instead of
+ * parsing the YAML files. The YAML files stay the source of truth: each
+ * entry keeps the fingerprint (mtime, size, CRC-32) of the file it was
+ * taken from, and a file that no longer matches is parsed as usual.
+ *
+ * Layout (big-endian):
+ *   [int magic][int version][long written at]
+ *   [int strings]  ([int length][UTF-8 bytes])...   every key and string value once
+ *   [int entries]  ([int name][long mtime][long size][long crc][int offset][int length])...
+ *   [body]         one encoded document per entry
+ *   [long crc32 of everything before]
+ *
+ * A document is a tree of tagged values: sections and lists nest,
+ * numbers and booleans are stored as primitives, strings as indexes into
+ * the string table. The file is memory-mapped and checked as a whole;
+ * a damaged or older-format snapshot is ignored.
+ */
+public final class RegistrySnapshot {
+
+    private static final int MAGIC = 0x43455330;   // "CES0"
+    private static final int VERSION = 1;
+
+    private static final byte SECTION = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte LIST = 6;
+    private static final byte MAP = 7;       // a map inside a list
+
+    public static final class Entry {
+
+        private final String name;
+        private final long modified;
+        private final long size;
+        private final long crc;
+        private final int offset;
+        private final int length;
+
+        private Entry(String name, long modified, long size, long crc, int offset, int length) {
+            this.name = name;
+            this.modified = modified;
+            this.size = size;
+            this.crc = crc;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getModified() {
+            return modified;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+    }
+
+    private final String[] strings;
+    private final Map<String, Entry> entries;
+    private final ByteBuffer body;
+
+    private RegistrySnapshot(String[] strings, Map<String, Entry> entries, ByteBuffer body) {
+        this.strings = strings;
+        this.entries = entries;
+        this.body = body;
+    }
+
+    /*
+     * =========================
+     *          READ
+     * =========================
+     */
+
+    // Null when there is no snapshot, or it is damaged or from another format
+    public static RegistrySnapshot read(File file) throws IOException {
+
+        if (!file.isFile() || file.length() < 24) return null;
+
+        // Read on the heap: a mapping would keep the file locked on Windows
+        // until collected, and the next snapshot is moved over it
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+        int end = buffer.capacity() - 8;
+
+        CRC32 crc = new CRC32();
+        ByteBuffer checked = buffer.duplicate();
+        checked.limit(end);
+        crc.update(checked);
+
+        if (crc.getValue() != buffer.getLong(end)) return null;
+
+        ByteBuffer in = buffer.duplicate();
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) return null;
+        in.getLong();
+
+        String[] strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int count = in.getInt();
+        Map<String, Entry> entries = new HashMap<>(count * 2);
+
+        for (int i = 0; i < count; i++) {
+            Entry entry = new Entry(strings[in.getInt()], in.getLong(), in.getLong(),
+                    in.getLong(), in.getInt(), in.getInt());
+            entries.put(entry.name, entry);
+        }
+
+        ByteBuffer body = in.slice();
+        body.limit(end - in.position());
+
+        return new RegistrySnapshot(strings, entries, body.asReadOnlyBuffer());
+    }
+
+    // Company name (as stored) -> entry
+    public Map<String, Entry> getEntries() {
+        return entries;
+    }
+
+    // Rebuilds one document; safe to call from several threads
+    public YamlConfiguration document(Entry entry) {
+
+        ByteBuffer in = body.duplicate();
+        in.position(entry.offset);
+        in.limit(entry.offset + entry.length);
+
+        YamlConfiguration config = new YamlConfiguration();
+        if (in.get() == SECTION) readSection(in, config);
+        return config;
+    }
+
+    private void readSection(ByteBuffer in, ConfigurationSection section) {
+
+        int count = in.getInt();
+
+        for (int i = 0; i < count; i++) {
+            String key = strings[in.getInt()];
+            byte tag = in.get();
+
+            if (tag == SECTION) {
+                readSection(in, section.createSection(key));
+            } else {
+                section.set(key, readValue(in, tag));
+            }
+        }
+    }
+
+    private Object readValue(ByteBuffer in, byte tag) {
+        switch (tag) {
+            case STRING: return strings[in.getInt()];
+            case INT: return in.getInt();
+            case LONG: return in.getLong();
+            case DOUBLE: return in.getDouble();
+            case BOOLEAN: return in.get() != 0;
+
+            case LIST: {
+                int size = in.getInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in, in.get()));
+                }
+                return list;
+            }
+
+            case MAP: {
+                int size = in.getInt();
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    String key = strings[in.getInt()];
+                    map.put(key, readValue(in, in.get()));
+                }
+                return map;
+            }
+
+            default:
+                throw new IllegalStateException("Unknown snapshot tag " + tag);
+        }
+    }
+
+    /*
+     * =========================
+     *          WRITE
+     * =========================
+     */
+
+    public static final class Writer {
+
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final List<long[]> index = new ArrayList<>();   // name, mtime, size, crc, offset, length
+        private final ByteArrayOutputStream bodyBuffer = new ByteArrayOutputStream(1 << 16);
+        private final DataOutputStream body = new DataOutputStream(bodyBuffer);
+
+        // One company; false (nothing added) when the document holds a
+        // value the snapshot cannot represent, so the YAML file is read instead
+        public boolean add(String name, long modified, long size, long crc, ConfigurationSection document) {
+
+            int offset = bodyBuffer.size();
+            int stringCount = strings.size();
+
+            try {
+                body.writeByte(SECTION);
+                writeSection(document);
+            } catch (IllegalArgumentException | IOException unsupported) {
+                rollback(offset, stringCount);
+                return false;
+            }
+
+            index.add(new long[]{intern(name), modified, size, crc, offset, bodyBuffer.size() - offset});
+            return true;
+        }
+
+        private void rollback(int offset, int stringCount) {
+
+            byte[] kept = Arrays.copyOf(bodyBuffer.toByteArray(), offset);
+            bodyBuffer.reset();
+            bodyBuffer.write(kept, 0, kept.length);
+
+            Iterator<Integer> ids = strings.values().iterator();
+            while (ids.hasNext()) {
+                if (ids.next() >= stringCount) ids.remove();
+            }
+        }
+
+        private void writeSection(ConfigurationSection section) throws IOException {
+
+            Set<String> keys = section.getKeys(false);
+            body.writeInt(keys.size());
+
+            for (String key : keys) {
+                body.writeInt(intern(key));
+
+                Object value = section.get(key);
+                if (value instanceof ConfigurationSection) {
+                    body.writeByte(SECTION);
+                    writeSection((ConfigurationSection) value);
+                } else {
+                    writeValue(value);
+                }
+            }
+        }
+
+        private void writeValue(Object value) throws IOException {
+
+            if (value instanceof String) {
+                body.writeByte(STRING);
+                body.writeInt(intern((String) value));
+            } else if (value instanceof Integer) {
+                body.writeByte(INT);
+                body.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                body.writeByte(LONG);
+                body.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                body.writeByte(DOUBLE);
+                body.writeDouble((Double) value);
+            } else if (value instanceof Boolean) {
+                body.writeByte(BOOLEAN);
+                body.writeByte((Boolean) value ? 1 : 0);
+            } else if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                body.writeByte(LIST);
+                body.writeInt(list.size());
+                for (Object element : list) {
+                    writeValue(element);
+                }
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                body.writeByte(MAP);
+                body.writeInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    body.writeInt(intern(String.valueOf(entry.getKey())));
+                    writeValue(entry.getValue());
+                }
+            } else {
+                // Floats, dates, serializable objects...: not worth a tag
+                throw new IllegalArgumentException(String.valueOf(value));
+            }
+        }
+
+        private int intern(String value) {
+            Integer id = strings.get(value);
+            if (id != null) return id;
+
+            id = strings.size();
+            strings.put(value, id);
+            return id;
+        }
+
+        public int size() {
+            return index.size();
+        }
+
+        // Temp file + rename, like the company files
+        public void write(File file) throws IOException {
+
+            File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+            CRC32 crc = new CRC32();
+
+            try (FileOutputStream stream = new FileOutputStream(temp)) {
+
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(stream, 1 << 16), crc));
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+
+                out.writeInt(strings.size());
+                for (String value : strings.keySet()) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+
+                out.writeInt(index.size());
+                for (long[] entry : index) {
+                    out.writeInt((int) entry[0]);
+                    out.writeLong(entry[1]);
+                    out.writeLong(entry[2]);
+                    out.writeLong(entry[3]);
+                    out.writeInt((int) entry[4]);
+                    out.writeInt((int) entry[5]);
+                }
+
+                bodyBuffer.writeTo(out);
+
+                out.flush();
+
+                // Written past the checksummed stream
+                stream.write(ByteBuffer.allocate(8).putLong(crc.getValue()).array());
+                stream.getFD().sync();
+            }
+
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.foxsrv.companyeconomy.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * SQLite store shared by several servers (storage.type: shared), all
+ * pointing at the same database file.
+ *
+ * On top of the versioned rows of SqliteCompanyStore:
+ *  - store_meta.changes is bumped by triggers on every company insert,
+ *    update and delete, so a poll that finds it unchanged costs one row;
+ *  - leases hold named, expiring locks (the payroll leader) so exactly
+ *    one server runs a job while the others stand by.
+ *
+ * Lease times are wall-clock millis, so the servers' clocks must agree
+ * to well within the lease length.
+ */
+public class SharedCompanyStore extends SqliteCompanyStore {
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS store_meta ("
+                    + "key TEXT PRIMARY KEY,"
+                    + "value INTEGER NOT NULL)",
+
+            "INSERT OR IGNORE INTO store_meta (key, value) VALUES ('changes', 0)",
+
+            "CREATE TRIGGER IF NOT EXISTS companies_inserted AFTER INSERT ON companies "
+                    + "BEGIN UPDATE store_meta SET value = value + 1 WHERE key = 'changes'; END",
+            "CREATE TRIGGER IF NOT EXISTS companies_updated AFTER UPDATE ON companies "
+                    + "BEGIN UPDATE store_meta SET value = value + 1 WHERE key = 'changes'; END",
+            "CREATE TRIGGER IF NOT EXISTS companies_deleted AFTER DELETE ON companies "
+                    + "BEGIN UPDATE store_meta SET value = value + 1 WHERE key = 'changes'; END",
+
+            "CREATE TABLE IF NOT EXISTS leases ("
+                    + "name TEXT PRIMARY KEY,"
+                    + "owner TEXT NOT NULL,"
+                    + "expires INTEGER NOT NULL)"
+    };
+
+    private final String node;
+
+    private PreparedStatement selectChanges;
+    private PreparedStatement selectVersions;
+    private PreparedStatement acquireLease;
+    private PreparedStatement selectLease;
+    private PreparedStatement releaseLease;
+
+    public SharedCompanyStore(File file, String node) {
+        super(file);
+        this.node = node;
+    }
+
+    @Override
+    public String getType() {
+        return "shared";
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    // This server's name in the leases table
+    public String getNode() {
+        return node;
+    }
+
+    @Override
+    public synchronized void open() throws IOException {
+        super.open();
+
+        try {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+
+            selectChanges = connection.prepareStatement(
+                    "SELECT value FROM store_meta WHERE key = 'changes'");
+            selectVersions = connection.prepareStatement(
+                    "SELECT name, version FROM companies");
+
+            // Taken when free, expired or already ours (renewal)
+            acquireLease = connection.prepareStatement(
+                    "INSERT INTO leases (name, owner, expires) VALUES (?, ?, ?) "
+                            + "ON CONFLICT(name) DO UPDATE SET "
+                            + "owner = excluded.owner, expires = excluded.expires "
+                            + "WHERE leases.owner = excluded.owner OR leases.expires < ?");
+            selectLease = connection.prepareStatement(
+                    "SELECT owner FROM leases WHERE name = ?");
+            releaseLease = connection.prepareStatement(
+                    "DELETE FROM leases WHERE name = ? AND owner = ?");
+
+        } catch (SQLException e) {
+            close();
+            throw new IOException("Could not prepare the shared store", e);
+        }
+    }
+
+    /*
+     * =========================
+     *        VERSIONS
+     * =========================
+     */
+
+    // Counter of company writes by every server; equal between two polls = nothing changed
+    public synchronized long readChanges() throws IOException {
+        try (ResultSet rs = selectChanges.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        } catch (SQLException e) {
+            throw new IOException("Could not read the change counter", e);
+        }
+    }
+
+    // Company name -> row version
+    public synchronized Map<String, Long> readVersions() throws IOException {
+        Map<String, Long> versions = new HashMap<>();
+
+        try (ResultSet rs = selectVersions.executeQuery()) {
+            while (rs.next()) {
+                versions.put(rs.getString(1), rs.getLong(2));
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not read company versions", e);
+        }
+
+        return versions;
+    }
+
+    /*
+     * =========================
+     *         LEASES
+     * =========================
+     */
+
+    // True when this server holds 'lease' until now + millis
+    public synchronized boolean acquireLease(String lease, long now, long millis) throws IOException {
+        try {
+            acquireLease.setString(1, lease);
+            acquireLease.setString(2, node);
+            acquireLease.setLong(3, now + millis);
+            acquireLease.setLong(4, now);
+            acquireLease.executeUpdate();
+
+            // Read back: the update count of an upsert that did nothing is not reliable
+            selectLease.setString(1, lease);
+            try (ResultSet rs = selectLease.executeQuery()) {
+                return rs.next() && node.equals(rs.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not acquire lease " + lease, e);
+        }
+    }
+
+    // Lets another server take over without waiting for the expiry
+    public synchronized void releaseLease(String lease) throws IOException {
+        try {
+            releaseLease.setString(1, lease);
+            releaseLease.setString(2, node);
+            releaseLease.executeUpdate();
+        } catch (SQLException e) {
+            throw new IOException("Could not release lease " + lease, e);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.foxsrv.companyeconomy.storage;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * Embedded SQLite store (the driver ships with Spigot).
+ *
+ * The YAML document stays the source of truth; the groups and members
+ * tables are indexed projections written in the same transaction so
+ * cross-company queries do not need every company in memory.
+ *
+ * One connection is reused for the lifetime of the store and all
+ * access is serialized on it.
+ *
+ * Every company row carries a version, bumped by each write. A company
+ * read from the store is written back only if its row is still at the
+ * version it was read at (compare-and-swap); see SharedCompanyStore.
+ */
+public class SqliteCompanyStore implements CompanyStore {
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS companies ("
+                    + "name TEXT PRIMARY KEY COLLATE NOCASE,"
+                    + "display_name TEXT NOT NULL,"
+                    + "balance REAL NOT NULL,"
+                    + "document TEXT NOT NULL,"
+                    + "version INTEGER NOT NULL DEFAULT 1)",
+
+            "CREATE TABLE IF NOT EXISTS company_groups ("
+                    + "company TEXT NOT NULL COLLATE NOCASE,"
+                    + "group_id INTEGER NOT NULL,"
+                    + "tag TEXT,"
+                    + "salary REAL NOT NULL,"
+                    + "permissions INTEGER NOT NULL,"
+                    + "PRIMARY KEY (company, group_id))",
+
+            "CREATE INDEX IF NOT EXISTS idx_company_groups_tag "
+                    + "ON company_groups (company, tag COLLATE NOCASE)",
+
+            "CREATE TABLE IF NOT EXISTS company_members ("
+                    + "company TEXT NOT NULL COLLATE NOCASE,"
+                    + "player_id TEXT NOT NULL,"
+                    + "player TEXT NOT NULL COLLATE NOCASE,"
+                    + "group_id INTEGER NOT NULL,"
+                    + "PRIMARY KEY (company, player_id))",
+
+            "CREATE INDEX IF NOT EXISTS idx_company_members_player "
+                    + "ON company_members (player)"
+    };
+
+    private final File file;
+
+    protected Connection connection;
+
+    private PreparedStatement upsertCompany;
+    private PreparedStatement swapCompany;
+    private PreparedStatement selectVersion;
+    private PreparedStatement deleteGroups;
+    private PreparedStatement insertGroup;
+    private PreparedStatement deleteMembers;
+    private PreparedStatement insertMember;
+    private PreparedStatement deleteCompany;
+    private PreparedStatement selectDocument;
+    private PreparedStatement selectHeader;
+    private PreparedStatement selectNames;
+
+    public SqliteCompanyStore(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getType() {
+        return "sqlite";
+    }
+
+    @Override
+    public synchronized void open() throws IOException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+
+            connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                // Other servers may hold the write lock for a moment
+                statement.execute("PRAGMA busy_timeout=5000");
+
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+
+            upsertCompany = connection.prepareStatement(
+                    "INSERT INTO companies (name, display_name, balance, document) "
+                            + "VALUES (?, ?, ?, ?) "
+                            + "ON CONFLICT(name) DO UPDATE SET "
+                            + "display_name = excluded.display_name, "
+                            + "balance = excluded.balance, "
+                            + "document = excluded.document, "
+                            + "version = companies.version + 1");
+
+            swapCompany = connection.prepareStatement(
+                    "UPDATE companies SET display_name = ?, balance = ?, document = ?, "
+                            + "version = version + 1 "
+                            + "WHERE name = ? AND version = ?");
+            selectVersion = connection.prepareStatement(
+                    "SELECT version FROM companies WHERE name = ?");
+
+            deleteGroups = connection.prepareStatement(
+                    "DELETE FROM company_groups WHERE company = ?");
+            insertGroup = connection.prepareStatement(
+                    "INSERT INTO company_groups (company, group_id, tag, salary, permissions) "
+                            + "VALUES (?, ?, ?, ?, ?)");
+
+            deleteMembers = connection.prepareStatement(
+                    "DELETE FROM company_members WHERE company = ?");
+            insertMember = connection.prepareStatement(
+                    "INSERT INTO company_members (company, player_id, player, group_id) "
+                            + "VALUES (?, ?, ?, ?)");
+
+            deleteCompany = connection.prepareStatement(
+                    "DELETE FROM companies WHERE name = ?");
+
+            selectDocument = connection.prepareStatement(
+                    "SELECT document, version FROM companies WHERE name = ?");
+            selectHeader = connection.prepareStatement(
+                    "SELECT display_name, balance FROM companies WHERE name = ?");
+            selectNames = connection.prepareStatement(
+                    "SELECT name FROM companies");
+
+        } catch (ClassNotFoundException | SQLException e) {
+            close();
+            throw new IOException("Could not open SQLite store " + file.getName(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (connection == null) return;
+
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+
+        connection = null;
+    }
+
+    /*
+     * =========================
+     *          READ
+     * =========================
+     */
+
+    @Override
+    public synchronized List<String> listCompanies() throws IOException {
+        List<String> names = new ArrayList<>();
+
+        try (ResultSet rs = selectNames.executeQuery()) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not list companies", e);
+        }
+
+        return names;
+    }
+
+    @Override
+    public synchronized boolean exists(String name) throws IOException {
+        try {
+            selectHeader.setString(1, name);
+            try (ResultSet rs = selectHeader.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not look up company " + name, e);
+        }
+    }
+
+    @Override
+    public YamlConfiguration load(String name) throws IOException {
+        return loadDocument(name).getConfig();
+    }
+
+    @Override
+    public CompanyDocument loadDocument(String name) throws IOException {
+
+        String document;
+        long version;
+
+        synchronized (this) {
+            try {
+                selectDocument.setString(1, name);
+                try (ResultSet rs = selectDocument.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new IOException("Company not found: " + name);
+                    }
+                    document = rs.getString(1);
+                    version = rs.getLong(2);
+                }
+            } catch (SQLException e) {
+                throw new IOException("Could not load company " + name, e);
+            }
+        }
+
+        // Parsed outside the lock so loader threads only queue on the query
+        YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.loadFromString(document);
+        } catch (InvalidConfigurationException e) {
+            throw new IOException("Invalid document for company " + name, e);
+        }
+
+        return new CompanyDocument(config, version);
+    }
+
+    @Override
+    public synchronized CompanyHeader loadHeader(String name) throws IOException {
+        try {
+            selectHeader.setString(1, name);
+            try (ResultSet rs = selectHeader.executeQuery()) {
+                if (!rs.next()) return null;
+                return new CompanyHeader(rs.getString(1), rs.getDouble(2));
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not load company " + name, e);
+        }
+    }
+
+    /*
+     * =========================
+     *          WRITE
+     * =========================
+     */
+
+    // The whole batch is one transaction with batched writes. Companies
+    // read from the store are swapped on their version; the others
+    // (new, imported) are written whatever the row holds.
+    @Override
+    public synchronized void save(Collection<CompanyData> companies) throws IOException {
+
+        if (companies.isEmpty()) return;
+
+        List<String> conflicts = new ArrayList<>();
+
+        try {
+            connection.setAutoCommit(false);
+
+            List<CompanyData> swapped = new ArrayList<>();
+            List<CompanyData> written = new ArrayList<>(companies.size());
+
+            for (CompanyData data : companies) {
+
+                if (data.getVersion() <= 0) {
+                    upsertCompany.setString(1, data.getName());
+                    upsertCompany.setString(2, data.getDisplayName());
+                    upsertCompany.setDouble(3, data.getBalance());
+                    upsertCompany.setString(4, data.getDocument());
+                    upsertCompany.executeUpdate();
+
+                    selectVersion.setString(1, data.getName());
+                    try (ResultSet rs = selectVersion.executeQuery()) {
+                        data.setWrittenVersion(rs.next() ? rs.getLong(1) : 0L);
+                    }
+
+                    written.add(data);
+                    continue;
+                }
+
+                swapCompany.setString(1, data.getDisplayName());
+                swapCompany.setDouble(2, data.getBalance());
+                swapCompany.setString(3, data.getDocument());
+                swapCompany.setString(4, data.getName());
+                swapCompany.setLong(5, data.getVersion());
+                swapCompany.addBatch();
+                swapped.add(data);
+            }
+
+            if (!swapped.isEmpty()) {
+                int[] counts = swapCompany.executeBatch();
+
+                for (int i = 0; i < swapped.size(); i++) {
+                    CompanyData data = swapped.get(i);
+
+                    if (counts[i] == 0) {
+                        conflicts.add(data.getName());
+                    } else {
+                        data.setWrittenVersion(data.getVersion() + 1);
+                        written.add(data);
+                    }
+                }
+            }
+
+            for (CompanyData data : written) {
+
+                deleteGroups.setString(1, data.getName());
+                deleteGroups.addBatch();
+
+                for (CompanyData.GroupRow group : data.getGroups()) {
+                    insertGroup.setString(1, data.getName());
+                    insertGroup.setInt(2, group.getId());
+                    insertGroup.setString(3, group.getTag());
+                    insertGroup.setDouble(4, group.getSalary());
+                    insertGroup.setLong(5, group.getPermissions());
+                    insertGroup.addBatch();
+                }
+
+                deleteMembers.setString(1, data.getName());
+                deleteMembers.addBatch();
+
+                for (CompanyData.MemberRow member : data.getMembers()) {
+                    insertMember.setString(1, data.getName());
+                    insertMember.setString(2, member.getPlayerId().toString());
+                    insertMember.setString(3, member.getName());
+                    insertMember.setInt(4, member.getGroupId());
+                    insertMember.addBatch();
+                }
+            }
+
+            // Deletes before inserts so rewritten rows never collide
+            deleteGroups.executeBatch();
+            deleteMembers.executeBatch();
+            insertGroup.executeBatch();
+            insertMember.executeBatch();
+
+            connection.commit();
+
+        } catch (SQLException e) {
+            clearBatches();
+            rollback();
+            throw new IOException("Could not save " + companies.size() + " company(ies)", e);
+
+        } finally {
+            restoreAutoCommit();
+        }
+
+        if (!conflicts.isEmpty()) throw new CompanyConflictException(conflicts);
+    }
+
+    @Override
+    public synchronized void delete(String name) throws IOException {
+        try {
+            connection.setAutoCommit(false);
+
+            deleteGroups.setString(1, name);
+            deleteGroups.executeUpdate();
+
+            deleteMembers.setString(1, name);
+            deleteMembers.executeUpdate();
+
+            deleteCompany.setString(1, name);
+            deleteCompany.executeUpdate();
+
+            connection.commit();
+
+        } catch (SQLException e) {
+            rollback();
+            throw new IOException("Could not delete company " + name, e);
+
+        } finally {
+            restoreAutoCommit();
+        }
+    }
+
+    private void clearBatches() {
+        for (PreparedStatement statement : new PreparedStatement[]{
+                swapCompany, deleteGroups, deleteMembers, insertGroup, insertMember}) {
+            try {
+                statement.clearBatch();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void restoreAutoCommit() {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException ignored) {
+        }
+    }
+}
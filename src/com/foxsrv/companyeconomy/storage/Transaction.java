@@ -0,0 +1,53 @@
+package com.foxsrv.companyeconomy.storage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/*
+ * One balance change of a company: when, how much (negative for money
+ * leaving), the balance right after, and who caused it.
+ */
+public final class Transaction {
+
+    private final long time;
+    private final long amountMinor;
+    private final long balanceMinor;
+    private final String actor;
+
+    public Transaction(long time, long amountMinor, long balanceMinor, String actor) {
+        this.time = time;
+        this.amountMinor = amountMinor;
+        this.balanceMinor = balanceMinor;
+        this.actor = actor == null ? "" : actor;
+    }
+
+    // Epoch millis
+    public long getTime() {
+        return time;
+    }
+
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public long getBalanceMinor() {
+        return balanceMinor;
+    }
+
+    // Player name, "payroll", "api"...; empty when unknown
+    public String getActor() {
+        return actor;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeLong(time);
+        out.writeLong(amountMinor);
+        out.writeLong(balanceMinor);
+        out.writeUTF(actor);
+    }
+
+    static Transaction read(DataInput in) throws IOException {
+        return new Transaction(in.readLong(), in.readLong(), in.readLong(), in.readUTF());
+    }
+}
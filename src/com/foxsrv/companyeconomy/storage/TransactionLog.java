@@ -0,0 +1,332 @@
+package com.foxsrv.companyeconomy.storage;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Transaction history of one company.
+ *
+ * Every transaction gets the next sequence number. The newest ones stay
+ * in a fixed-size ring; each flush appends the new ones to the current
+ * segment as one gzip member (a segment is a series of concatenated gzip
+ * members) and rolls to a new segment every segmentEntries transactions.
+ *
+ * Layout: history/<company>/<first seq>.gz plus <first seq>.idx, the
+ * sparse index: one record [long first seq][long offset][int count] per
+ * gzip member. Reading seq n decompresses only from the member holding n,
+ * found through the index, so old pages never load the whole history.
+ * A member whose index record was not written (crash) is never read.
+ *
+ * Transactions not on disk yet are kept until written, so reads never
+ * skip the ones that fell out of the ring before a (failed or late) flush.
+ */
+final class TransactionLog {
+
+    private static final int INDEX_RECORD = 8 + 8 + 4;
+
+    // One gzip member of a segment
+    private static final class Member {
+
+        private final File data;
+        private final long firstSeq;
+        private final long offset;
+        private final int count;
+
+        private Member(File data, long firstSeq, long offset, int count) {
+            this.data = data;
+            this.firstSeq = firstSeq;
+            this.offset = offset;
+            this.count = count;
+        }
+    }
+
+    private final File folder;
+    private final int segmentEntries;
+    private final int maxSegments;
+
+    // Guarded by this
+    private final Transaction[] ring;
+    private long nextSeq;
+    private long ringStart;              // lowest seq that was ever put in the ring
+    private final List<Transaction> pending = new ArrayList<>();
+    private long pendingStart;
+    private List<Transaction> writing;   // batch of the running flush, null otherwise
+    private long writingStart;
+    private final NavigableMap<Long, Member> members = new TreeMap<>();
+    private final NavigableMap<Long, Long> segments = new TreeMap<>();   // first seq -> transactions
+
+    // Held while writing, so flushes of one log never interleave
+    private final Object writeLock = new Object();
+
+    TransactionLog(File folder, int memoryEntries, int segmentEntries, int maxSegments) throws IOException {
+        this.folder = folder;
+        this.ring = new Transaction[Math.max(1, memoryEntries)];
+        this.segmentEntries = Math.max(1, segmentEntries);
+        this.maxSegments = Math.max(1, maxSegments);
+
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+
+        loadIndexes();
+
+        ringStart = nextSeq;
+        pendingStart = nextSeq;
+    }
+
+    private void loadIndexes() throws IOException {
+
+        File[] files = folder.listFiles((dir, file) -> file.endsWith(".idx"));
+        if (files == null) return;
+
+        for (File index : files) {
+
+            long first;
+            try {
+                first = Long.parseLong(index.getName().substring(0, index.getName().length() - 4));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+
+            File data = new File(folder, first + ".gz");
+            long entries = 0;
+
+            // A torn last record (crash mid-write) is cut off, so the
+            // next flush appends its record at a record boundary
+            long records = index.length() / INDEX_RECORD;
+
+            if (index.length() % INDEX_RECORD != 0) {
+                try (RandomAccessFile file = new RandomAccessFile(index, "rw")) {
+                    file.setLength(records * INDEX_RECORD);
+                }
+            }
+
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(index)))) {
+                for (long i = 0; i < records; i++) {
+                    Member member = new Member(data, in.readLong(), in.readLong(), in.readInt());
+                    members.put(member.firstSeq, member);
+                    entries += member.count;
+                    nextSeq = Math.max(nextSeq, member.firstSeq + member.count);
+                }
+            }
+
+            segments.put(first, entries);
+        }
+    }
+
+    /*
+     * =========================
+     *          APPEND
+     * =========================
+     */
+
+    synchronized void append(Transaction transaction) {
+        ring[(int) (nextSeq % ring.length)] = transaction;
+        nextSeq++;
+        pending.add(transaction);
+    }
+
+    synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    synchronized long size() {
+        return nextSeq - oldestSeq();
+    }
+
+    // Writes the pending transactions as one gzip member
+    void flush() throws IOException {
+
+        synchronized (writeLock) {
+
+            List<Transaction> batch;
+            long first;
+
+            synchronized (this) {
+                if (pending.isEmpty()) return;
+                batch = new ArrayList<>(pending);
+                first = pendingStart;
+                pending.clear();
+                pendingStart = nextSeq;
+                writing = batch;
+                writingStart = first;
+            }
+
+            try {
+                write(batch, first);
+            } catch (IOException e) {
+                // Kept for the next flush, ahead of what was appended meanwhile
+                synchronized (this) {
+                    pending.addAll(0, batch);
+                    pendingStart = first;
+                }
+                throw e;
+            } finally {
+                synchronized (this) {
+                    writing = null;
+                }
+            }
+        }
+    }
+
+    private void write(List<Transaction> batch, long first) throws IOException {
+
+        long segment;
+        synchronized (this) {
+            Map.Entry<Long, Long> last = segments.lastEntry();
+            segment = last == null || last.getValue() >= segmentEntries ? first : last.getKey();
+        }
+
+        File data = new File(folder, segment + ".gz");
+        long offset = data.length();
+
+        try (FileOutputStream file = new FileOutputStream(data, true)) {
+            GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(file));
+            DataOutputStream out = new DataOutputStream(gzip);
+            for (Transaction transaction : batch) {
+                transaction.write(out);
+            }
+            out.close();
+        }
+
+        // Written last: a member without its index record does not exist
+        try (DataOutputStream index = new DataOutputStream(
+                new FileOutputStream(new File(folder, segment + ".idx"), true))) {
+            index.writeLong(first);
+            index.writeLong(offset);
+            index.writeInt(batch.size());
+        }
+
+        synchronized (this) {
+            members.put(first, new Member(data, first, offset, batch.size()));
+            segments.merge(segment, (long) batch.size(), Long::sum);
+        }
+
+        dropOldSegments();
+    }
+
+    private void dropOldSegments() {
+
+        List<Long> dropped = new ArrayList<>();
+
+        synchronized (this) {
+            while (segments.size() > maxSegments) {
+                long first = segments.pollFirstEntry().getKey();
+                Long next = segments.isEmpty() ? null : segments.firstKey();
+                members.headMap(next == null ? Long.MAX_VALUE : next, false).clear();
+                dropped.add(first);
+            }
+        }
+
+        for (long first : dropped) {
+            new File(folder, first + ".gz").delete();
+            new File(folder, first + ".idx").delete();
+        }
+    }
+
+    /*
+     * =========================
+     *           READ
+     * =========================
+     */
+
+    // Oldest seq still readable (memory or disk)
+    private long oldestSeq() {
+        return members.isEmpty() ? memoryStart() : Math.min(members.firstKey(), memoryStart());
+    }
+
+    // First seq not on disk yet; everything from it up is in writing or pending
+    private long unwrittenStart() {
+        return writing != null ? writingStart : pendingStart;
+    }
+
+    // Memory holds [memoryStart, nextSeq): the ring plus what is not written
+    private long memoryStart() {
+        return Math.min(Math.max(ringStart, nextSeq - ring.length), unwrittenStart());
+    }
+
+    private Transaction inMemory(long seq) {
+        if (seq >= Math.max(ringStart, nextSeq - ring.length)) return ring[(int) (seq % ring.length)];
+        if (seq >= pendingStart) return pending.get((int) (seq - pendingStart));
+        return writing.get((int) (seq - writingStart));
+    }
+
+    // Newest first, starting 'skip' entries back from the newest; null when
+    // part of it is only on disk (see read)
+    synchronized List<Transaction> readMemory(long skip, int limit) {
+
+        long newest = nextSeq - 1 - skip;
+        long oldest = Math.max(newest - limit + 1, oldestSeq());
+
+        if (oldest < memoryStart()) return null;
+
+        List<Transaction> result = new ArrayList<>();
+        for (long seq = newest; seq >= oldest; seq--) {
+            result.add(inMemory(seq));
+        }
+        return result;
+    }
+
+    // Like readMemory, reading the part that is no longer in memory from disk
+    List<Transaction> read(long skip, int limit) throws IOException {
+
+        List<Transaction> memory = readMemory(skip, limit);
+        if (memory != null) return memory;
+
+        // No flush meanwhile: what is not written stays in pending
+        synchronized (writeLock) {
+
+            long newest, oldest, unwritten;
+            List<Member> from;
+
+            synchronized (this) {
+                newest = nextSeq - 1 - skip;
+                oldest = Math.max(newest - limit + 1, oldestSeq());
+                unwritten = unwrittenStart();
+
+                Long start = members.floorKey(oldest);
+                from = new ArrayList<>(members.tailMap(start == null ? oldest : start, true).values());
+            }
+
+            List<Transaction> ascending = new ArrayList<>();
+            long diskNewest = Math.min(newest, unwritten - 1);
+
+            for (Member member : from) {
+                if (member.firstSeq > diskNewest) break;
+                readMember(member, oldest, diskNewest, ascending);
+            }
+
+            // The part not written yet
+            synchronized (this) {
+                for (long seq = Math.max(diskNewest + 1, oldest); seq <= newest; seq++) {
+                    ascending.add(inMemory(seq));
+                }
+            }
+
+            Collections.reverse(ascending);
+            return ascending;
+        }
+    }
+
+    private static void readMember(Member member, long from, long to, List<Transaction> into)
+            throws IOException {
+
+        try (FileInputStream file = new FileInputStream(member.data)) {
+
+            file.getChannel().position(member.offset);
+
+            DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(file)));
+
+            for (int i = 0; i < member.count; i++) {
+                long seq = member.firstSeq + i;
+                if (seq > to) break;
+
+                Transaction transaction = Transaction.read(in);
+                if (seq >= from) into.add(transaction);
+            }
+        }
+    }
+}
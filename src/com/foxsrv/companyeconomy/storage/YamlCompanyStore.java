@@ -0,0 +1,269 @@
+package com.foxsrv.companyeconomy.storage;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/*
+ * One <name>.yml file per company under companies/.
+ *
+ * Remembers what it last read or wrote for every file (mtime, size,
+ * CRC-32 of the content), so an incremental reload can tell an admin's
+ * edit from the plugin's own writes without parsing anything.
+ */
+public class YamlCompanyStore implements CompanyStore {
+
+    private final File folder;
+
+    // Company name -> last content read or written by this store
+    private final Map<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+    public YamlCompanyStore(File folder) {
+        this.folder = folder;
+    }
+
+    @Override
+    public String getType() {
+        return "yaml";
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public File getFolder() {
+        return folder;
+    }
+
+    public File fileOf(String name) {
+        return new File(folder, name + ".yml");
+    }
+
+    /*
+     * =========================
+     *          READ
+     * =========================
+     */
+
+    @Override
+    public List<String> listCompanies() {
+
+        List<String> names = new ArrayList<>();
+
+        File[] files = folder.listFiles(
+                (dir, name) -> name.toLowerCase().endsWith(".yml")
+        );
+
+        if (files == null) return names;
+
+        for (File file : files) {
+            String fileName = file.getName();
+            names.add(fileName.substring(0, fileName.length() - ".yml".length()));
+        }
+
+        return names;
+    }
+
+    @Override
+    public boolean exists(String name) {
+        return fileOf(name).exists();
+    }
+
+    @Override
+    public YamlConfiguration load(String name) throws IOException {
+
+        File file = fileOf(name);
+        long modified = file.lastModified();
+        byte[] content = Files.readAllBytes(file.toPath());
+
+        YamlConfiguration config = new YamlConfiguration();
+
+        try {
+            config.loadFromString(new String(content, StandardCharsets.UTF_8));
+        } catch (InvalidConfigurationException e) {
+            throw new IOException("Invalid YAML in " + name + ".yml", e);
+        }
+
+        fingerprints.put(name, new Fingerprint(modified, content));
+        return config;
+    }
+
+    // mtime and size first; the content is only hashed when they moved
+    @Override
+    public boolean hasChanged(String name) throws IOException {
+
+        File file = fileOf(name);
+        Fingerprint known = fingerprints.get(name);
+
+        if (!file.exists()) return known != null;
+        if (known == null) return true;
+
+        long modified = file.lastModified();
+        if (modified == known.modified && file.length() == known.size) return false;
+
+        Fingerprint current = new Fingerprint(modified, Files.readAllBytes(file.toPath()));
+        if (!current.sameContent(known)) return true;
+
+        // Touched but not edited
+        fingerprints.put(name, current);
+        return false;
+    }
+
+    // {mtime, size, crc} of what this store last read or wrote, null if nothing
+    public long[] getFingerprint(String name) {
+        Fingerprint known = fingerprints.get(name);
+        return known == null ? null : new long[]{known.modified, known.size, known.crc};
+    }
+
+    // Takes over a fingerprint recorded elsewhere (the registry snapshot)
+    // when the file still has that mtime and size; false when it was
+    // touched since and has to be read again
+    public boolean adoptFingerprint(String name, long modified, long size, long crc) {
+        File file = fileOf(name);
+        if (file.lastModified() != modified || file.length() != size) return false;
+
+        fingerprints.put(name, new Fingerprint(modified, size, crc));
+        return true;
+    }
+
+    // Reads the top-level displayName / balance keys without parsing the YAML
+    @Override
+    public CompanyHeader loadHeader(String name) {
+
+        String headerName = null;
+        String headerBalance = null;
+
+        try (BufferedReader reader = Files.newBufferedReader(
+                fileOf(name).toPath(), StandardCharsets.UTF_8)) {
+
+            String line;
+            while ((line = reader.readLine()) != null
+                    && (headerName == null || headerBalance == null)) {
+
+                if (line.startsWith("displayName:")) {
+                    headerName = unquote(line.substring("displayName:".length()));
+                } else if (line.startsWith("balance:")) {
+                    headerBalance = unquote(line.substring("balance:".length()));
+                }
+            }
+
+            return new CompanyHeader(
+                    (headerName == null || headerName.isEmpty()) ? name : headerName,
+                    headerBalance == null ? 0.0 : Double.parseDouble(headerBalance));
+
+        } catch (IOException | NumberFormatException e) {
+            // Unusual layout: caller falls back to a full parse
+            return null;
+        }
+    }
+
+    private static String unquote(String value) {
+        value = value.trim();
+        if (value.length() >= 2
+                && (value.charAt(0) == '\'' || value.charAt(0) == '"')
+                && value.charAt(value.length() - 1) == value.charAt(0)) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /*
+     * =========================
+     *          WRITE
+     * =========================
+     */
+
+    @Override
+    public void save(Collection<CompanyData> companies) throws IOException {
+
+        IOException failure = null;
+
+        for (CompanyData data : companies) {
+            try {
+                write(fileOf(data.getName()), data.getDocument());
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+
+        if (failure != null) throw failure;
+    }
+
+    // Temp file + rename: a crash never leaves a half-written company file
+    private void write(File file, String document) throws IOException {
+
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        byte[] content = document.getBytes(StandardCharsets.UTF_8);
+
+        Files.write(temp.toPath(), content);
+
+        try {
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        String fileName = file.getName();
+        fingerprints.put(fileName.substring(0, fileName.length() - ".yml".length()),
+                new Fingerprint(file.lastModified(), content));
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        File file = fileOf(name);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not delete " + file.getName());
+        }
+        fingerprints.remove(name);
+    }
+
+    private static final class Fingerprint {
+
+        private final long modified;
+        private final long size;
+        private final long crc;
+
+        private Fingerprint(long modified, byte[] content) {
+            CRC32 checksum = new CRC32();
+            checksum.update(content, 0, content.length);
+
+            this.modified = modified;
+            this.size = content.length;
+            this.crc = checksum.getValue();
+        }
+
+        private Fingerprint(long modified, long size, long crc) {
+            this.modified = modified;
+            this.size = size;
+            this.crc = crc;
+        }
+
+        private boolean sameContent(Fingerprint other) {
+            return size == other.size && crc == other.crc;
+        }
+    }
+}
@@ -35,10 +35,51 @@ echo Compilando CompanyEconomy...
 %JAVAC% --release 17 -d out ^
 -classpath "spigot-api-1.20.1-R0.1-SNAPSHOT.jar;Vault.jar" ^
 src/com/foxsrv/companyeconomy/CompanyEconomy.java ^
+src/com/foxsrv/companyeconomy/company/CommandTemplate.java ^
 src/com/foxsrv/companyeconomy/company/Company.java ^
+src/com/foxsrv/companyeconomy/company/CompanyFileWatcher.java ^
 src/com/foxsrv/companyeconomy/company/CompanyManager.java ^
+src/com/foxsrv/companyeconomy/company/CompanyPermission.java ^
+src/com/foxsrv/companyeconomy/company/CompanyRanking.java ^
+src/com/foxsrv/companyeconomy/company/CompanySaver.java ^
+src/com/foxsrv/companyeconomy/company/CompanyServiceImpl.java ^
+src/com/foxsrv/companyeconomy/company/GroupTable.java ^
+src/com/foxsrv/companyeconomy/company/MemberView.java ^
+src/com/foxsrv/companyeconomy/company/Membership.java ^
+src/com/foxsrv/companyeconomy/company/MembershipIndex.java ^
+src/com/foxsrv/companyeconomy/company/PayrollScheduler.java ^
+src/com/foxsrv/companyeconomy/company/PayrollSettlement.java ^
+src/com/foxsrv/companyeconomy/company/RankIndex.java ^
+src/com/foxsrv/companyeconomy/company/Roster.java ^
+src/com/foxsrv/companyeconomy/company/SalaryAccrual.java ^
 src/com/foxsrv/companyeconomy/company/SalaryTask.java ^
-src/com/foxsrv/companyeconomy/command/CompanyCommand.java
+src/com/foxsrv/companyeconomy/company/SharedStateSync.java ^
+src/com/foxsrv/companyeconomy/command/CommandDispatchQueue.java ^
+src/com/foxsrv/companyeconomy/command/CommandPipeline.java ^
+src/com/foxsrv/companyeconomy/command/CompanyCommand.java ^
+src/com/foxsrv/companyeconomy/player/PlayerListener.java ^
+src/com/foxsrv/companyeconomy/player/PlayerNameIndex.java ^
+src/com/foxsrv/companyeconomy/storage/CompanyArchive.java ^
+src/com/foxsrv/companyeconomy/storage/CompanyConflictException.java ^
+src/com/foxsrv/companyeconomy/storage/CompanyData.java ^
+src/com/foxsrv/companyeconomy/storage/CompanyDocument.java ^
+src/com/foxsrv/companyeconomy/storage/CompanyHeader.java ^
+src/com/foxsrv/companyeconomy/storage/CompanyHistory.java ^
+src/com/foxsrv/companyeconomy/storage/CompanyJournal.java ^
+src/com/foxsrv/companyeconomy/storage/CompanyStore.java ^
+src/com/foxsrv/companyeconomy/storage/RegistrySnapshot.java ^
+src/com/foxsrv/companyeconomy/storage/SharedCompanyStore.java ^
+src/com/foxsrv/companyeconomy/storage/SqliteCompanyStore.java ^
+src/com/foxsrv/companyeconomy/storage/Transaction.java ^
+src/com/foxsrv/companyeconomy/storage/TransactionLog.java ^
+src/com/foxsrv/companyeconomy/storage/YamlCompanyStore.java ^
+src/com/foxsrv/companyeconomy/api/CompanyService.java ^
+src/com/foxsrv/companyeconomy/api/CompanySnapshot.java ^
+src/com/foxsrv/companyeconomy/api/Money.java ^
+src/com/foxsrv/companyeconomy/api/TransactionResult.java ^
+src/com/foxsrv/companyeconomy/metrics/LatencyHistogram.java ^
+src/com/foxsrv/companyeconomy/metrics/Metrics.java ^
+src/com/foxsrv/companyeconomy/metrics/MetricsExporter.java
 
 if %errorlevel% neq 0 (
     echo ============================================
@@ -50,8 +91,9 @@ if %errorlevel% neq 0 (
 )
 
 echo.
-echo Copiando plugin.yml...
+echo Copiando plugin.yml e config.yml...
 copy plugin.yml out\ >nul
+copy config.yml out\ >nul
 
 echo.
 echo Criando JAR final...
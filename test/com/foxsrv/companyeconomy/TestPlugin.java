@@ -0,0 +1,84 @@
+package com.foxsrv.companyeconomy;
+
+import com.foxsrv.companyeconomy.company.CompanyManager;
+import net.milkbowl.vault.economy.Economy;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * The plugin without onEnable, over a test folder: no commands,
+ * listeners or timers, so a test drives exactly the code it checks.
+ * Several instances over one folder stand for restarts (or, with shared
+ * storage, for several servers).
+ */
+public final class TestPlugin extends CompanyEconomy {
+
+    private final YamlConfiguration config;
+    private final Economy economy = Stubs.economy();
+    private CompanyManager manager;
+
+    @SuppressWarnings("deprecation")
+    public TestPlugin(File dataFolder, YamlConfiguration config) {
+        super(new JavaPluginLoader(Stubs.server()),
+                new PluginDescriptionFile("CompanyEconomy", "test",
+                        CompanyEconomy.class.getName()),
+                dataFolder, new File(dataFolder, "CompanyEconomy.jar"));
+        this.config = config;
+    }
+
+    // The shipped config.yml, without background flushes or file watching
+    public static YamlConfiguration defaults() {
+
+        YamlConfiguration config;
+
+        try (Reader reader = new InputStreamReader(
+                TestPlugin.class.getResourceAsStream("/config.yml"), StandardCharsets.UTF_8)) {
+            config = YamlConfiguration.loadConfiguration(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        config.set("persistence.flush-interval-seconds", 3600);
+        config.set("journal.compact-interval-seconds", 3600);
+        config.set("reload.watch-files", false);
+        config.set("loading.log-each-company", false);
+        config.set("payroll.log-summary", false);
+        return config;
+    }
+
+    // Loads the companies and replays the journal, as onEnable does
+    public CompanyManager start() {
+        manager = new CompanyManager(this);
+        manager.loadCompanies();
+        manager.recoverJournal();
+        return manager;
+    }
+
+    public void stop() {
+        if (manager != null) manager.shutdown();
+    }
+
+    @Override
+    public FileConfiguration getConfig() {
+        return config;
+    }
+
+    @Override
+    public Economy getEconomy() {
+        return economy;
+    }
+
+    @Override
+    public CompanyManager getCompanyManager() {
+        return manager;
+    }
+}
@@ -0,0 +1,150 @@
+package com.foxsrv.companyeconomy.company;
+
+import com.foxsrv.companyeconomy.TestPlugin;
+import com.foxsrv.companyeconomy.api.TransactionResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompanyBalanceTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 2_000;
+
+    @TempDir
+    File folder;
+
+    private TestPlugin plugin;
+    private CompanyManager manager;
+    private Company company;
+
+    @BeforeEach
+    void start() {
+        plugin = new TestPlugin(folder, TestPlugin.defaults());
+        manager = plugin.start();
+        company = manager.createCompany("acme");
+    }
+
+    @AfterEach
+    void stop() {
+        plugin.stop();
+    }
+
+    // Runs 'task' on THREADS threads released together
+    private static void race(Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            done.add(pool.submit(() -> {
+                go.await();
+                task.run();
+                return null;
+            }));
+        }
+
+        go.countDown();
+        for (Future<?> future : done) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void concurrentDepositsAndWithdrawalsLoseNothing() throws Exception {
+        company.depositMinor(1_000_000L, "test");
+
+        race(() -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                company.depositMinor(3L, "test");
+                company.withdrawMinor(1L, "test");
+            }
+        });
+
+        assertEquals(1_000_000L + THREADS * OPERATIONS * 2L, company.getBalanceMinor());
+    }
+
+    @Test
+    void tryWithdrawNeverOverdraws() throws Exception {
+        company.depositMinor(10_000L, "test");
+        AtomicLong withdrawn = new AtomicLong();
+
+        race(() -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                if (company.tryWithdrawMinor(7L, "test")) withdrawn.addAndGet(7L);
+            }
+        });
+
+        assertEquals(10_000L - withdrawn.get(), company.getBalanceMinor());
+        assertTrue(company.getBalanceMinor() >= 0 && company.getBalanceMinor() < 7L);
+    }
+
+    @Test
+    void tryWithdrawRefusesMoreThanTheBalance() {
+        company.depositMinor(500L, "test");
+
+        assertFalse(company.tryWithdrawMinor(501L, "test"));
+        assertTrue(company.tryWithdrawMinor(500L, "test"));
+        assertEquals(0L, company.getBalanceMinor());
+    }
+
+    @Test
+    void overflowingDepositLeavesTheBalanceAlone() {
+        company.depositMinor(Long.MAX_VALUE - 10L, "test");
+
+        assertThrows(ArithmeticException.class, () -> company.depositMinor(11L, "test"));
+        assertEquals(Long.MAX_VALUE - 10L, company.getBalanceMinor());
+
+        // Back to an amount the YAML store can hold
+        company.withdrawMinor(Long.MAX_VALUE - 10L, "test");
+    }
+
+    @Test
+    void majorAmountsMoveWholeCents() {
+        company.deposit(0.016, "test");
+        company.deposit(0.004, "test");
+
+        assertEquals(2L, company.getBalanceMinor());
+        assertEquals(0.02, company.getBalance());
+    }
+
+    @Test
+    void serviceReportsEveryOutcome() {
+        CompanyServiceImpl service = new CompanyServiceImpl(manager);
+
+        TransactionResult deposit = service.deposit("ACME", 1_250L).join();
+        assertEquals(TransactionResult.Status.SUCCESS, deposit.getStatus());
+        assertEquals(1_250L, deposit.getBalanceMinor());
+
+        TransactionResult tooMuch = service.withdraw("acme", 1_251L).join();
+        assertEquals(TransactionResult.Status.INSUFFICIENT_FUNDS, tooMuch.getStatus());
+        assertEquals(1_250L, tooMuch.getBalanceMinor());
+
+        assertEquals(TransactionResult.Status.INVALID_AMOUNT, service.deposit("acme", 0L).join().getStatus());
+        assertEquals(TransactionResult.Status.INVALID_AMOUNT, service.deposit("acme", Double.NaN).join().getStatus());
+        assertEquals(TransactionResult.Status.COMPANY_NOT_FOUND, service.deposit("nobody", 1L).join().getStatus());
+
+        service.deposit("acme", Long.MAX_VALUE - 1_250L).join();
+        assertEquals(TransactionResult.Status.OVERFLOW, service.deposit("acme", 1L).join().getStatus());
+
+        // Back to an amount the YAML store can hold
+        service.withdraw("acme", Long.MAX_VALUE - 1_250L).join();
+    }
+}
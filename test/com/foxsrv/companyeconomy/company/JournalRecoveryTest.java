@@ -0,0 +1,123 @@
+package com.foxsrv.companyeconomy.company;
+
+import com.foxsrv.companyeconomy.TestPlugin;
+import com.foxsrv.companyeconomy.storage.CompanyJournal;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalRecoveryTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final UUID STEVE = UUID.fromString("2f1d0c3e-5a7b-4c6d-8e9f-0a1b2c3d4e5f");
+    private static final UUID ALEX = UUID.fromString("8a7b6c5d-4e3f-4a1b-9c8d-7e6f5a4b3c2d");
+
+    @TempDir
+    File folder;
+
+    private final List<TestPlugin> running = new ArrayList<>();
+
+    @AfterEach
+    void stop() {
+        running.forEach(TestPlugin::stop);
+    }
+
+    private CompanyManager start() {
+        YamlConfiguration config = TestPlugin.defaults();
+        config.set("snapshot.enabled", false);
+
+        TestPlugin plugin = new TestPlugin(folder, config);
+        running.add(plugin);
+        return plugin.start();
+    }
+
+    // Unclean shutdown: the journal reached the disk, the company files did
+    // not. The manager is left as a killed server leaves it (daemon threads).
+    private void crash(CompanyManager manager) throws IOException {
+        manager.getJournal().sync();
+        running.remove(running.size() - 1);
+    }
+
+    @Test
+    void restoresEverythingChangedSinceTheLastFlush() throws IOException {
+        CompanyManager first = start();
+        Company company = first.createCompany("acme");
+        company.depositMinor(10_000L, "test");
+        company.addEmployee(ALEX, "Alex", 2);
+        first.getSaver().flush();
+
+        company.addEmployee(STEVE, "Steve", 1);
+        company.removeEmployee(ALEX);
+        assertTrue(company.tryWithdrawMinor(3_000L, "payroll"));
+        company.setLastPaid(HOUR, 42L);
+        company.setSettled(STEVE, 1_000L);
+        crash(first);
+
+        Company recovered = start().getCompany("acme");
+
+        assertEquals(7_000L, recovered.getBalanceMinor());
+        assertEquals(1, recovered.getEmployeeGroup(STEVE));
+        assertEquals(-1, recovered.getEmployeeGroup(ALEX));
+        assertEquals(42L, recovered.getLastPaid(HOUR));
+        assertEquals(1_000L, recovered.getSettled(STEVE));
+    }
+
+    @Test
+    void compactionFoldsTheRecoveredStateIntoTheStore() throws IOException {
+        CompanyManager first = start();
+        first.createCompany("acme").depositMinor(2_500L, "test");
+        crash(first);
+
+        start();
+
+        // Recovery compacted: the file has the balance and only the new segment is left
+        YamlConfiguration file = YamlConfiguration.loadConfiguration(new File(folder, "companies/acme.yml"));
+        assertEquals(25.0, file.getDouble("balance"));
+        assertEquals(1, new File(folder, "journal").listFiles((dir, name) -> name.endsWith(".log")).length);
+    }
+
+    @Test
+    void cleanShutdownLeavesNothingToReplay() {
+        CompanyManager first = start();
+        first.createCompany("acme").depositMinor(500L, "test");
+        running.remove(running.size() - 1).stop();
+
+        CompanyManager second = start();
+
+        assertEquals(500L, second.getCompany("acme").getBalanceMinor());
+        assertEquals(0, second.getJournal().replay(new IgnoringReplayer()));
+    }
+
+    private static final class IgnoringReplayer implements CompanyJournal.Replayer {
+
+        @Override
+        public void balance(String company, long balanceMinor) {
+        }
+
+        @Override
+        public void member(String company, UUID playerId, String playerName, int groupId) {
+        }
+
+        @Override
+        public void removal(String company, UUID playerId) {
+        }
+
+        @Override
+        public void lastPaid(String company, long interval, long time) {
+        }
+
+        @Override
+        public void settled(String company, UUID playerId, long time) {
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.foxsrv.companyeconomy.company;
+
+import com.foxsrv.companyeconomy.TestPlugin;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankIndexTest {
+
+    @TempDir
+    File folder;
+
+    private TestPlugin plugin;
+    private CompanyManager manager;
+
+    @BeforeEach
+    void start() {
+        YamlConfiguration config = TestPlugin.defaults();
+        config.set("journal.enabled", false);
+        config.set("history.enabled", false);
+
+        plugin = new TestPlugin(folder, config);
+        manager = plugin.start();
+    }
+
+    @AfterEach
+    void stop() {
+        plugin.stop();
+    }
+
+    // Not registered: only the index under test sees it
+    private Company company(String name) {
+        return new Company(plugin, manager.getStore(), name, new YamlConfiguration());
+    }
+
+    private static List<String> names(List<RankIndex.Entry> page) {
+        return page.stream().map(entry -> entry.company.getName()).collect(Collectors.toList());
+    }
+
+    @Test
+    void highestScoreFirstThenByName() {
+        RankIndex index = new RankIndex();
+
+        index.put(company("beta"), () -> 50L);
+        index.put(company("alpha"), () -> 50L);
+        index.put(company("gamma"), () -> 90L);
+        index.put(company("delta"), () -> -5L);
+
+        assertEquals(Arrays.asList("gamma", "alpha", "beta", "delta"), names(index.page(0, 10)));
+        assertEquals(Arrays.asList("beta", "delta"), names(index.page(2, 10)));
+        assertEquals(Arrays.asList("alpha"), names(index.page(1, 1)));
+    }
+
+    @Test
+    void pagesOutsideTheIndexAreEmpty() {
+        RankIndex index = new RankIndex();
+        index.put(company("acme"), () -> 1L);
+
+        assertTrue(index.page(1, 10).isEmpty());
+        assertTrue(index.page(-1, 10).isEmpty());
+        assertTrue(index.page(0, 0).isEmpty());
+        assertTrue(new RankIndex().page(0, 10).isEmpty());
+    }
+
+    @Test
+    void updateMovesTheCompany() {
+        RankIndex index = new RankIndex();
+        Company low = company("low");
+        Company high = company("high");
+
+        index.put(low, () -> 10L);
+        index.put(high, () -> 20L);
+        index.put(low, () -> 30L);
+
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList("low", "high"), names(index.page(0, 10)));
+        assertEquals(30L, index.page(0, 1).get(0).score);
+    }
+
+    @Test
+    void removeKeepsANewerInstance() {
+        RankIndex index = new RankIndex();
+        Company old = company("acme");
+        Company reloaded = company("ACME");
+
+        index.put(old, () -> 10L);
+        index.put(reloaded, () -> 10L);
+
+        // The old instance goes away after the reload swapped it
+        index.remove(old);
+        assertEquals(1, index.size());
+        assertEquals(reloaded, index.page(0, 1).get(0).company);
+
+        index.remove(reloaded);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void everyPageMatchesASortedList() {
+        RankIndex index = new RankIndex();
+        Random random = new Random(7);
+
+        List<Company> companies = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            companies.add(company(String.format("c%03d", i)));
+        }
+
+        Map<Company, Long> scores = new HashMap<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            Company company = companies.get(random.nextInt(companies.size()));
+
+            if (random.nextInt(5) == 0) {
+                scores.remove(company);
+                index.remove(company);
+            } else {
+                long score = random.nextInt(200);
+                scores.put(company, score);
+                index.put(company, () -> score);
+            }
+        }
+
+        List<String> expected = scores.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<Company, Long>>comparingLong(Map.Entry::getValue).reversed()
+                        .thenComparing(entry -> entry.getKey().getName()))
+                .map(entry -> entry.getKey().getName())
+                .collect(Collectors.toList());
+
+        assertEquals(expected.size(), index.size());
+
+        for (int offset = 0; offset < expected.size(); offset += 7) {
+            int end = Math.min(expected.size(), offset + 10);
+            assertEquals(expected.subList(offset, end), names(index.page(offset, 10)), "page at " + offset);
+        }
+    }
+
+    @Test
+    void rankingFollowsBalanceChanges() {
+        Company acme = manager.createCompany("acme");
+        Company globex = manager.createCompany("globex");
+
+        // Above the default company the plugin creates
+        globex.depositMinor(10_000_000L, "test");
+        acme.depositMinor(9_000_000L, "test");
+
+        List<CompanyRanking.Entry> top = manager.getRanking().page(CompanyRanking.Order.BALANCE, 0, 2);
+        assertEquals(globex, top.get(0).getCompany());
+        assertEquals("$100000.0", top.get(0).getValue());
+
+        acme.depositMinor(2_000_000L, "test");
+
+        top = manager.getRanking().page(CompanyRanking.Order.BALANCE, 0, 2);
+        assertEquals(acme, top.get(0).getCompany());
+        assertEquals(2, top.get(1).getPosition());
+    }
+}
@@ -0,0 +1,151 @@
+package com.foxsrv.companyeconomy.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RosterTest {
+
+    // Capacity of a new roster; it grows past 8 members
+    private static final int CAPACITY = 16;
+
+    private final Random random = new Random(42);
+
+    // Home slot in a new roster (same hash as Roster.slot)
+    private static int home(UUID playerId) {
+        long h = (playerId.getMostSignificantBits() ^ playerId.getLeastSignificantBits()) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (CAPACITY - 1);
+    }
+
+    // A fresh uuid whose home slot is 'slot'
+    private UUID homedAt(int slot) {
+        while (true) {
+            UUID playerId = new UUID(random.nextLong(), random.nextLong());
+            if (home(playerId) == slot) return playerId;
+        }
+    }
+
+    @Test
+    void putGetAndReplace() {
+        Roster roster = new Roster();
+        UUID steve = homedAt(3);
+
+        assertEquals(Roster.NONE, roster.get(steve));
+
+        roster.put(steve, 2);
+        roster.put(steve, 5);
+
+        assertEquals(5, roster.get(steve));
+        assertEquals(1, roster.size());
+        assertEquals(5, roster.remove(steve));
+        assertEquals(Roster.NONE, roster.remove(steve));
+        assertEquals(0, roster.size());
+    }
+
+    @Test
+    void rejectsTheFreeMarkerAsGroup() {
+        assertThrows(IllegalArgumentException.class, () -> new Roster().put(UUID.randomUUID(), Integer.MIN_VALUE));
+    }
+
+    @Test
+    void collidingKeysProbePastEachOther() {
+        Roster roster = new Roster();
+        List<UUID> cluster = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            UUID playerId = homedAt(7);
+            cluster.add(playerId);
+            roster.put(playerId, i);
+        }
+
+        for (int i = 0; i < cluster.size(); i++) {
+            assertEquals(i, roster.get(cluster.get(i)));
+        }
+        assertEquals(Roster.NONE, roster.get(homedAt(7)));
+    }
+
+    @Test
+    void deletionShiftsTheChainBackAcrossTheWrap() {
+        Roster roster = new Roster();
+
+        // Slots 14, 15, 0, 1, 2 hold a chain that wraps around the end
+        UUID a = homedAt(14);
+        UUID b = homedAt(14);
+        UUID c = homedAt(15);
+        UUID d = homedAt(0);
+        UUID e = homedAt(14);
+        UUID f = homedAt(1);
+
+        for (UUID playerId : Arrays.asList(a, b, c, d, e, f)) {
+            roster.put(playerId, home(playerId) + 100);
+        }
+
+        // Every removal leaves a hole the rest of the chain must not end at
+        assertEquals(114, roster.remove(b));
+        assertAll(roster, a, c, d, e, f);
+
+        assertEquals(114, roster.remove(a));
+        assertAll(roster, c, d, e, f);
+
+        assertEquals(100, roster.remove(d));
+        assertAll(roster, c, e, f);
+
+        assertEquals(114, roster.remove(e));
+        assertAll(roster, c, f);
+
+        assertEquals(2, roster.size());
+    }
+
+    private static void assertAll(Roster roster, UUID... members) {
+        for (UUID playerId : members) {
+            assertEquals(home(playerId) + 100, roster.get(playerId), "lost " + playerId);
+        }
+        assertEquals(members.length, roster.size());
+    }
+
+    @Test
+    void behavesLikeAMapThroughGrowthAndRemovals() {
+        Roster roster = new Roster();
+        Map<UUID, Integer> expected = new HashMap<>();
+
+        // A small key set, so puts, replaces and removals keep meeting
+        UUID[] keys = new UUID[600];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+
+        for (int step = 0; step < 50_000; step++) {
+            UUID playerId = keys[random.nextInt(keys.length)];
+
+            if (random.nextInt(3) == 0) {
+                Integer previous = expected.remove(playerId);
+                assertEquals(previous == null ? Roster.NONE : previous, roster.remove(playerId));
+            } else {
+                int group = random.nextInt(10);
+                expected.put(playerId, group);
+                roster.put(playerId, group);
+            }
+        }
+
+        assertEquals(expected.size(), roster.size());
+        for (UUID playerId : keys) {
+            assertEquals(expected.getOrDefault(playerId, Roster.NONE), roster.get(playerId));
+        }
+
+        assertEquals(expected.keySet(), new HashSet<>(Arrays.asList(roster.keys())));
+
+        Map<UUID, Integer> visited = new HashMap<>();
+        roster.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+}
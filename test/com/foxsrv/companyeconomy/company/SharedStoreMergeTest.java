@@ -0,0 +1,188 @@
+package com.foxsrv.companyeconomy.company;
+
+import com.foxsrv.companyeconomy.TestPlugin;
+import com.foxsrv.companyeconomy.storage.SharedCompanyStore;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedStoreMergeTest {
+
+    private static final Logger LOGGER = Logger.getLogger("SharedStoreMergeTest");
+    private static final long HOUR = 3_600_000L;
+
+    @TempDir
+    File folder;
+
+    // One per server, each with its own plugin folder over the same database
+    private final List<TestPlugin> running = new ArrayList<>();
+    private final List<SharedStateSync> syncs = new ArrayList<>();
+
+    @AfterEach
+    void stop() {
+        syncs.forEach(SharedStateSync::close);
+        running.forEach(TestPlugin::stop);
+    }
+
+    private CompanyManager start(String node) {
+        YamlConfiguration config = TestPlugin.defaults();
+        config.set("storage.type", "shared");
+        config.set("storage.shared.file", new File(folder, "shared/companies.db").getAbsolutePath());
+        config.set("storage.shared.node", node);
+
+        TestPlugin plugin = new TestPlugin(new File(folder, node), config);
+        running.add(plugin);
+
+        CompanyManager manager = plugin.start();
+        assertTrue(manager.getStore().isShared());
+        return manager;
+    }
+
+    // Polled by hand: the interval is far longer than any test
+    private SharedStateSync sync(CompanyManager manager) {
+        SharedStateSync sync = new SharedStateSync(manager, (SharedCompanyStore) manager.getStore(),
+                HOUR, 30_000L, LOGGER);
+        syncs.add(sync);
+        return sync;
+    }
+
+    @Test
+    void conflictingFlushMergesBothChanges() {
+        CompanyManager first = start("first");
+        first.createCompany("acme").depositMinor(10_000L, "test");
+        assertTrue(first.getSaver().flush());
+
+        CompanyManager second = start("second");
+        SharedStateSync firstSync = sync(first);
+
+        first.getCompany("acme").depositMinor(500L, "test");
+        assertTrue(second.getCompany("acme").tryWithdrawMinor(300L, "test"));
+
+        assertTrue(first.getSaver().flush());
+
+        // The row moved on: the second server reads it again and keeps its withdrawal
+        assertFalse(second.getSaver().flush());
+        assertEquals(10_200L, second.getCompany("acme").getBalanceMinor());
+        assertTrue(second.getSaver().flush());
+
+        firstSync.run();
+        assertEquals(10_200L, first.getCompany("acme").getBalanceMinor());
+    }
+
+    @Test
+    void payrollTimesKeepTheLaterOne() {
+        CompanyManager first = start("first");
+        first.createCompany("acme");
+        assertTrue(first.getSaver().flush());
+
+        CompanyManager second = start("second");
+
+        first.getCompany("acme").setLastPaid(HOUR, 2_000L);
+        second.getCompany("acme").setLastPaid(HOUR, 1_000L);
+        second.getCompany("acme").setLastPaid(2 * HOUR, 5_000L);
+
+        assertTrue(first.getSaver().flush());
+        assertFalse(second.getSaver().flush());
+        assertTrue(second.getSaver().flush());
+
+        sync(first).run();
+
+        for (CompanyManager manager : new CompanyManager[]{first, second}) {
+            Company acme = manager.getCompany("acme");
+            assertEquals(2_000L, acme.getLastPaid(HOUR));
+            assertEquals(5_000L, acme.getLastPaid(2 * HOUR));
+        }
+    }
+
+    @Test
+    void pollPicksUpCompaniesCreatedAndDeletedElsewhere() {
+        CompanyManager first = start("first");
+        CompanyManager second = start("second");
+        SharedStateSync secondSync = sync(second);
+
+        first.createCompany("acme").depositMinor(700L, "test");
+        assertTrue(first.getSaver().flush());
+
+        secondSync.run();
+        assertEquals(700L, second.getCompany("acme").getBalanceMinor());
+
+        first.deleteCompany("acme");
+        assertTrue(first.getSaver().flush());
+
+        secondSync.run();
+        assertNull(second.getCompany("acme"));
+    }
+
+    @Test
+    void concurrentServersLoseNoMoney() throws Exception {
+        CompanyManager first = start("first");
+        first.createCompany("acme").depositMinor(10_000L, "test");
+        assertTrue(first.getSaver().flush());
+
+        CompanyManager second = start("second");
+        CompanyManager[] managers = {first, second};
+        SharedStateSync[] polls = {sync(first), sync(second)};
+
+        // Each server deposits, flushes and polls on its own thread, as
+        // its main and saver threads would; the two servers run at once
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Long>> deposited = new ArrayList<>();
+
+        for (int server = 0; server < 2; server++) {
+            CompanyManager manager = managers[server];
+            SharedStateSync poll = polls[server];
+            Random random = new Random(server);
+
+            deposited.add(pool.submit(() -> {
+                go.await();
+                long total = 0;
+
+                for (int i = 0; i < 300; i++) {
+                    long amount = 1 + random.nextInt(100);
+                    manager.getCompany("acme").depositMinor(amount, "test");
+                    total += amount;
+
+                    if (random.nextInt(4) == 0) manager.getSaver().flush();
+                    if (random.nextInt(6) == 0) poll.run();
+                }
+                return total;
+            }));
+        }
+
+        go.countDown();
+        long expected = 10_000L;
+        for (Future<Long> future : deposited) {
+            expected += future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // Settle: each conflict is merged and written by the next flush
+        for (int round = 0; round < 5; round++) {
+            boolean clean = first.getSaver().flush() & second.getSaver().flush();
+            polls[0].run();
+            polls[1].run();
+            if (clean) break;
+        }
+
+        assertEquals(expected, first.getCompany("acme").getBalanceMinor());
+        assertEquals(expected, second.getCompany("acme").getBalanceMinor());
+    }
+}
@@ -0,0 +1,141 @@
+package com.foxsrv.companyeconomy.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompanyArchiveTest {
+
+    private static final String HEADER = "{\"format\":\"companyeconomy-companies\",\"version\":1}\n";
+
+    @TempDir
+    File folder;
+
+    private static CompanyData company(String name, String document) {
+        return new CompanyData(name, name.toUpperCase(), 12.5, document,
+                Collections.emptyList(), Collections.emptyList(), 1L);
+    }
+
+    private File write(String file, CompanyData... companies) throws IOException {
+        File archive = new File(folder, file);
+        try (CompanyArchive.Writer writer = new CompanyArchive.Writer(archive)) {
+            for (CompanyData data : companies) {
+                writer.write(data);
+            }
+        }
+        return archive;
+    }
+
+    private File raw(String content) throws IOException {
+        File archive = new File(folder, "raw.ndjson");
+        Files.write(archive.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return archive;
+    }
+
+    // "name=document" for every record
+    private static List<String> readAll(File archive) throws IOException {
+        List<String> records = new ArrayList<>();
+        try (CompanyArchive.Reader reader = new CompanyArchive.Reader(archive)) {
+            CompanyArchive.Record record;
+            while ((record = reader.next()) != null) {
+                records.add(record.getName() + "=" + record.getDocument());
+            }
+        }
+        return records;
+    }
+
+    @Test
+    void plainArchiveRoundTrips() throws IOException {
+        File archive = write("companies.ndjson", company("acme", "balance: 12.5\n"), company("globex", ""));
+
+        assertEquals(Arrays.asList("acme=balance: 12.5\n", "globex="), readAll(archive));
+        assertTrue(Files.readAllLines(archive.toPath()).get(0).contains("companyeconomy-companies"));
+    }
+
+    @Test
+    void gzipIsDetectedFromTheContent() throws IOException {
+        File archive = write("companies.ndjson.gz", company("acme", "a: 1\n"));
+
+        // Renamed: the reader must not rely on the extension
+        File renamed = new File(folder, "companies.bin");
+        assertTrue(archive.renameTo(renamed));
+
+        assertEquals(Arrays.asList("acme=a: 1\n"), readAll(renamed));
+    }
+
+    @Test
+    void documentSurvivesEveryEscape() throws IOException {
+        String document = "tag: \"Boss\" \\o/\r\n\tindented\nbell\u0007 nul\u0000 é \u20ac \uD83D\uDCB0\n";
+        File archive = write("companies.ndjson", company("acme", document));
+
+        // One company per line, whatever the document holds
+        assertEquals(2, Files.readAllLines(archive.toPath()).size());
+        assertEquals(Arrays.asList("acme=" + document), readAll(archive));
+    }
+
+    @Test
+    void readsHandWrittenLines() throws IOException {
+        File archive = raw(HEADER
+                + "\n"
+                + "  { \"balance\" : 1e3 , \"extra\":true, \"document\":\"a\\/b\\u0041\\b\\f\", \"name\":\"acme\" }  \n"
+                + "{\"name\":\"globex\",\"document\":\"\"}");
+
+        assertEquals(Arrays.asList("acme=a/bA\b\f", "globex="), readAll(archive));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotArchives() throws IOException {
+        assertThrows(IOException.class, () -> new CompanyArchive.Reader(raw("")));
+        assertThrows(IOException.class, () -> new CompanyArchive.Reader(raw("{\"format\":\"other\"}\n")));
+        assertThrows(IOException.class, () -> new CompanyArchive.Reader(raw("name: acme\n")));
+
+        IOException newer = assertThrows(IOException.class, () -> new CompanyArchive.Reader(
+                raw("{\"format\":\"companyeconomy-companies\",\"version\":2}\n")));
+        assertTrue(newer.getMessage().contains("newer version"));
+    }
+
+    @Test
+    void malformedLinesNameTheirLine() throws IOException {
+        String[] lines = {
+                "{\"name\":\"acme\",\"document\":\"unterminated}",
+                "{\"name\":\"acme\"}",
+                "{\"name\":\"acme\",\"document\":\"\\u00g1\"}",
+                "{\"name\":\"acme\",\"document\":\"\\u00\"}",
+                "{\"name\":\"acme\" \"document\":\"x\"}",
+                "{\"name\":\"acme\",\"document\":\"x\"",
+                "[\"acme\"]"
+        };
+
+        for (String line : lines) {
+            File archive = raw(HEADER + "{\"name\":\"ok\",\"document\":\"\"}\n" + line + "\n");
+
+            try (CompanyArchive.Reader reader = new CompanyArchive.Reader(archive)) {
+                assertEquals("ok", reader.next().getName());
+
+                IOException error = assertThrows(IOException.class, reader::next, line);
+                assertTrue(error.getMessage().startsWith("Line 3: "), error.getMessage());
+            }
+        }
+    }
+
+    @Test
+    void endOfArchiveStaysNull() throws IOException {
+        try (CompanyArchive.Reader reader = new CompanyArchive.Reader(raw(HEADER + "\n\n"))) {
+            assertNull(reader.next());
+            assertNull(reader.next());
+        }
+    }
+}
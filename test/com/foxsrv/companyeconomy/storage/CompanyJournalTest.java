@@ -0,0 +1,179 @@
+package com.foxsrv.companyeconomy.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompanyJournalTest {
+
+    private static final Logger LOGGER = Logger.getLogger("CompanyJournalTest");
+    private static final UUID PLAYER = UUID.fromString("2f1d0c3e-5a7b-4c6d-8e9f-0a1b2c3d4e5f");
+
+    @TempDir
+    File folder;
+
+    private final List<CompanyJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeJournals() {
+        opened.forEach(CompanyJournal::close);
+    }
+
+    private CompanyJournal open() throws IOException {
+        CompanyJournal journal = new CompanyJournal(folder, 60_000L, LOGGER);
+        opened.add(journal);
+        return journal;
+    }
+
+    // Every replayed record as one line
+    private static List<String> replay(CompanyJournal journal) {
+        List<String> records = new ArrayList<>();
+
+        journal.replay(new CompanyJournal.Replayer() {
+            @Override
+            public void balance(String company, long balanceMinor) {
+                records.add("balance " + company + " " + balanceMinor);
+            }
+
+            @Override
+            public void member(String company, UUID playerId, String playerName, int groupId) {
+                records.add("member " + company + " " + playerId + " " + playerName + " " + groupId);
+            }
+
+            @Override
+            public void removal(String company, UUID playerId) {
+                records.add("removal " + company + " " + playerId);
+            }
+
+            @Override
+            public void lastPaid(String company, long interval, long time) {
+                records.add("lastPaid " + company + " " + interval + " " + time);
+            }
+
+            @Override
+            public void settled(String company, UUID playerId, long time) {
+                records.add("settled " + company + " " + playerId + " " + time);
+            }
+        });
+
+        return records;
+    }
+
+    private File[] segments() {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".log"));
+        Arrays.sort(files);
+        return files;
+    }
+
+    @Test
+    void replaysEveryRecordOfAPreviousRunInOrder() throws IOException {
+        CompanyJournal crashed = open();
+        crashed.appendBalance("acme", () -> 1250L);
+        crashed.appendMember("acme", PLAYER, "Steve", 2);
+        crashed.appendLastPaid("acme", 3_600_000L, 42L);
+        crashed.appendSettled("acme", PLAYER, 1_000L);
+        crashed.appendRemoval("acme", PLAYER);
+        crashed.appendBalance("acme", () -> 900L);
+        crashed.sync();
+
+        assertEquals(Arrays.asList(
+                "balance acme 1250",
+                "member acme " + PLAYER + " Steve 2",
+                "lastPaid acme 3600000 42",
+                "settled acme " + PLAYER + " 1000",
+                "removal acme " + PLAYER,
+                "balance acme 900"), replay(open()));
+    }
+
+    @Test
+    void doesNotReplayTheOpenSegment() throws IOException {
+        CompanyJournal journal = open();
+        journal.appendBalance("acme", () -> 1L);
+        journal.sync();
+
+        assertTrue(replay(journal).isEmpty());
+
+        journal.rotate();
+        assertEquals(Arrays.asList("balance acme 1"), replay(journal));
+    }
+
+    @Test
+    void memberWithoutNameReplaysNull() throws IOException {
+        CompanyJournal crashed = open();
+        crashed.appendMember("acme", PLAYER, null, 1);
+        crashed.sync();
+
+        assertEquals(Arrays.asList("member acme " + PLAYER + " null 1"), replay(open()));
+    }
+
+    @Test
+    void ignoresATornLastRecord() throws IOException {
+        CompanyJournal crashed = open();
+        crashed.appendBalance("acme", () -> 100L);
+        crashed.appendBalance("acme", () -> 200L);
+        crashed.sync();
+
+        File segment = segments()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        assertEquals(Arrays.asList("balance acme 100"), replay(open()));
+    }
+
+    @Test
+    void stopsAtACorruptRecord() throws IOException {
+        CompanyJournal crashed = open();
+        crashed.appendBalance("acme", () -> 100L);
+        crashed.appendBalance("acme", () -> 200L);
+        crashed.appendBalance("acme", () -> 300L);
+        crashed.sync();
+
+        // One record is [int length][payload][int crc]: flip a payload byte of the second
+        File segment = segments()[0];
+        long second = segment.length() / 3;
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(second + 6);
+            int b = file.read();
+            file.seek(second + 6);
+            file.write(b ^ 0xFF);
+        }
+
+        assertEquals(Arrays.asList("balance acme 100"), replay(open()));
+    }
+
+    @Test
+    void compactionDropsOnlySealedSegments() throws IOException {
+        CompanyJournal journal = open();
+        journal.appendBalance("acme", () -> 1L);
+        journal.rotate();
+        journal.appendBalance("acme", () -> 2L);
+        journal.rotate();
+        journal.appendBalance("acme", () -> 3L);
+        journal.sync();
+
+        assertEquals(3, segments().length);
+        assertEquals(Arrays.asList("balance acme 1", "balance acme 2"), replay(journal));
+
+        journal.deleteSealed();
+
+        assertEquals(1, segments().length);
+        assertTrue(replay(journal).isEmpty());
+
+        // The open segment is sealed by the next run and replayed then
+        journal.close();
+        assertEquals(Arrays.asList("balance acme 3"), replay(open()));
+    }
+}
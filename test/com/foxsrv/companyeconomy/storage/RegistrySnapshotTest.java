@@ -0,0 +1,193 @@
+package com.foxsrv.companyeconomy.storage;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegistrySnapshotTest {
+
+    @TempDir
+    File folder;
+
+    // Every kind of value a company file holds
+    private static YamlConfiguration document(String name, double balance) {
+        YamlConfiguration document = new YamlConfiguration();
+        document.set("name", name);
+        document.set("balance", balance);
+        document.set("version", 7);
+        document.set("created", 1_700_000_000_000L);
+        document.set("open", true);
+        document.set("groups.1.tag", "Boss");
+        document.set("groups.1.salary", 250.5);
+        document.set("groups.2.tag", "Worker ✓");
+        document.set("payroll.last-paid.3600000", 42L);
+        document.set("commands", Arrays.asList("say hi", "give %player% diamond 1"));
+
+        document.set("members", Arrays.asList(
+                member("2f1d0c3e-5a7b-4c6d-8e9f-0a1b2c3d4e5f", 2),
+                member("8a7b6c5d-4e3f-4a1b-9c8d-7e6f5a4b3c2d", 1)));
+
+        document.createSection("empty");
+        return document;
+    }
+
+    private static Map<String, Object> member(String uuid, int group) {
+        Map<String, Object> member = new LinkedHashMap<>();
+        member.put("uuid", uuid);
+        member.put("group", group);
+        return member;
+    }
+
+    private File write(RegistrySnapshot.Writer writer) throws IOException {
+        File file = new File(folder, "registry.snapshot");
+        writer.write(file);
+        return file;
+    }
+
+    @Test
+    void documentsAndFingerprintsRoundTrip() throws IOException {
+        RegistrySnapshot.Writer writer = new RegistrySnapshot.Writer();
+        YamlConfiguration acme = document("acme", 5000.0);
+        YamlConfiguration globex = document("Globex", -0.01);
+
+        assertTrue(writer.add("acme", 10L, 200L, 0xFFFF_FFFFL, acme));
+        assertTrue(writer.add("globex", 11L, 300L, 5L, globex));
+        assertEquals(2, writer.size());
+
+        RegistrySnapshot snapshot = RegistrySnapshot.read(write(writer));
+        assertNotNull(snapshot);
+        assertEquals(2, snapshot.getEntries().size());
+
+        RegistrySnapshot.Entry entry = snapshot.getEntries().get("acme");
+        assertEquals(10L, entry.getModified());
+        assertEquals(200L, entry.getSize());
+        assertEquals(0xFFFF_FFFFL, entry.getCrc());
+
+        assertEquals(acme.saveToString(), snapshot.document(entry).saveToString());
+        assertEquals(globex.saveToString(), snapshot.document(snapshot.getEntries().get("globex")).saveToString());
+        assertEquals(1_700_000_000_000L, snapshot.document(entry).get("created"));
+    }
+
+    @Test
+    void unsupportedValueSkipsOnlyThatCompany() throws IOException {
+        RegistrySnapshot.Writer writer = new RegistrySnapshot.Writer();
+
+        YamlConfiguration odd = document("odd", 1.0);
+        odd.set("groups.3.since", new Date());
+        odd.set("only-in-odd", "never interned");
+
+        assertTrue(writer.add("acme", 1L, 1L, 1L, document("acme", 1.0)));
+        assertFalse(writer.add("odd", 1L, 1L, 1L, odd));
+        assertFalse(writer.add("ratio", 1L, 1L, 1L, section("ratio", 0.5f)));
+        assertTrue(writer.add("globex", 1L, 1L, 1L, document("globex", 2.0)));
+        assertEquals(2, writer.size());
+
+        RegistrySnapshot snapshot = RegistrySnapshot.read(write(writer));
+        assertEquals(2, snapshot.getEntries().size());
+        assertFalse(snapshot.getEntries().containsKey("odd"));
+        assertEquals(document("globex", 2.0).saveToString(),
+                snapshot.document(snapshot.getEntries().get("globex")).saveToString());
+
+        // The failed entry's strings were rolled back with its bytes
+        String table = new String(Files.readAllBytes(new File(folder, "registry.snapshot").toPath()), StandardCharsets.UTF_8);
+        assertFalse(table.contains("never interned"));
+    }
+
+    private static YamlConfiguration section(String key, Object value) {
+        YamlConfiguration section = new YamlConfiguration();
+        section.set(key, value);
+        return section;
+    }
+
+    @Test
+    void documentsCanBeReadFromSeveralThreads() throws IOException {
+        RegistrySnapshot.Writer writer = new RegistrySnapshot.Writer();
+        for (int i = 0; i < 50; i++) {
+            writer.add("c" + i, i, i, i, document("c" + i, i));
+        }
+
+        RegistrySnapshot snapshot = RegistrySnapshot.read(write(writer));
+
+        IntStream.range(0, 50).parallel().forEach(i -> assertEquals(
+                document("c" + i, i).saveToString(),
+                snapshot.document(snapshot.getEntries().get("c" + i)).saveToString()));
+    }
+
+    @Test
+    void anyDamagedByteIgnoresTheSnapshot() throws IOException {
+        RegistrySnapshot.Writer writer = new RegistrySnapshot.Writer();
+        writer.add("acme", 1L, 1L, 1L, document("acme", 1.0));
+        File file = write(writer);
+        long length = file.length();
+
+        for (long position : new long[]{0, 17, length / 2, length - 9, length - 1}) {
+            flip(file, position);
+            assertNull(RegistrySnapshot.read(file), "byte " + position);
+            flip(file, position);
+        }
+        assertNotNull(RegistrySnapshot.read(file));
+
+        try (RandomAccessFile torn = new RandomAccessFile(file, "rw")) {
+            torn.setLength(length - 20);
+        }
+        assertNull(RegistrySnapshot.read(file));
+    }
+
+    private static void flip(File file, long position) throws IOException {
+        try (RandomAccessFile data = new RandomAccessFile(file, "rw")) {
+            data.seek(position);
+            int b = data.read();
+            data.seek(position);
+            data.write(b ^ 0x01);
+        }
+    }
+
+    @Test
+    void otherFormatsAndMissingFilesAreIgnored() throws IOException {
+        File file = new File(folder, "registry.snapshot");
+        assertNull(RegistrySnapshot.read(file));
+
+        Files.write(file.toPath(), new byte[16]);
+        assertNull(RegistrySnapshot.read(file));
+
+        // Checksums match, but the magic or version does not
+        Files.write(file.toPath(), empty(0x12345678, 1));
+        assertNull(RegistrySnapshot.read(file));
+
+        Files.write(file.toPath(), empty(0x43455330, 2));
+        assertNull(RegistrySnapshot.read(file));
+
+        Files.write(file.toPath(), empty(0x43455330, 1));
+        assertTrue(RegistrySnapshot.read(file).getEntries().isEmpty());
+    }
+
+    // A snapshot with no strings and no entries
+    private static byte[] empty(int magic, int version) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + 4 + 8);
+        buffer.putInt(magic).putInt(version).putLong(0L).putInt(0).putInt(0);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        return buffer.array();
+    }
+}
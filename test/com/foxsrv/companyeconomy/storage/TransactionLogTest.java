@@ -0,0 +1,162 @@
+package com.foxsrv.companyeconomy.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionLogTest {
+
+    // Small enough that every read crosses ring, pending and disk
+    private static final int RING = 8;
+    private static final int SEGMENT = 5;
+
+    @TempDir
+    File folder;
+
+    private TransactionLog open(int maxSegments) throws IOException {
+        return new TransactionLog(folder, RING, SEGMENT, maxSegments);
+    }
+
+    // Transaction number 'seq' carries seq as its time
+    private static void append(TransactionLog log, long from, long to) {
+        for (long seq = from; seq < to; seq++) {
+            log.append(new Transaction(seq, 1L, seq, "test"));
+        }
+    }
+
+    // Newest first, one after the other, from 'newest' down
+    private static void assertRun(long newest, int count, List<Transaction> page) {
+        assertEquals(count, page.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(newest - i, page.get(i).getTime(), "entry " + i);
+        }
+    }
+
+    @Test
+    void memoryServesWhatFellOutOfTheRingBeforeAFlush() throws IOException {
+        TransactionLog log = open(100);
+        append(log, 0, 30);
+
+        assertEquals(30, log.pendingCount());
+        assertRun(29, 30, log.readMemory(0, 30));
+        assertRun(19, 10, log.readMemory(10, 10));
+    }
+
+    @Test
+    void readsJoinDiskAndPending() throws IOException {
+        TransactionLog log = open(100);
+        append(log, 0, 10);
+        log.flush();
+        append(log, 10, 50);
+
+        assertEquals(50, log.size());
+        assertRun(49, 40, log.readMemory(0, 40));
+
+        // Reaches past what is in memory
+        assertNull(log.readMemory(0, 50));
+        assertRun(49, 50, log.read(0, 50));
+        assertRun(44, 45, log.read(5, 100));
+    }
+
+    @Test
+    void readsPagesFromTheMiddleOfTheDisk() throws IOException {
+        TransactionLog log = open(100);
+        for (int batch = 0; batch < 12; batch++) {
+            append(log, batch * 3L, batch * 3L + 3);
+            log.flush();
+        }
+
+        assertEquals(0, log.pendingCount());
+        assertRun(35, RING, log.readMemory(0, RING));
+        assertRun(24, 7, log.read(11, 7));
+        assertRun(2, 3, log.read(33, 10));
+        assertTrue(log.read(36, 10).isEmpty());
+    }
+
+    @Test
+    void failedFlushKeepsTheBatchReadable() throws IOException {
+        TransactionLog log = open(100);
+        append(log, 0, 10);
+        log.flush();
+        append(log, 10, 50);
+
+        // The first segment is full, so the next one is 10.gz: a folder there fails the write
+        File blocker = new File(folder, "10.gz");
+        assertTrue(blocker.mkdir());
+        assertThrows(IOException.class, log::flush);
+        assertTrue(blocker.delete());
+
+        assertEquals(40, log.pendingCount());
+        append(log, 50, 60);
+        assertRun(59, 60, log.read(0, 60));
+
+        log.flush();
+        assertEquals(0, log.pendingCount());
+        assertRun(54, 55, log.read(5, 55));
+    }
+
+    @Test
+    void reopenedLogReadsTheDiskAndContinuesTheSequence() throws IOException {
+        TransactionLog log = open(100);
+        append(log, 0, 23);
+        log.flush();
+        append(log, 23, 30);
+        log.flush();
+
+        TransactionLog reopened = open(100);
+        assertEquals(30, reopened.size());
+        assertNull(reopened.readMemory(0, 1));
+        assertRun(29, 30, reopened.read(0, 30));
+
+        append(reopened, 30, 33);
+        assertRun(32, 3, reopened.readMemory(0, 3));
+        assertRun(32, 33, reopened.read(0, 50));
+    }
+
+    @Test
+    void tornIndexRecordIsCutOffOnOpen() throws IOException {
+        TransactionLog log = open(100);
+        append(log, 0, 4);
+        log.flush();
+
+        // Part of the index record of a member that was being written
+        try (FileOutputStream index = new FileOutputStream(new File(folder, "0.idx"), true)) {
+            index.write(new byte[]{0, 0, 0, 0, 0, 0, 0});
+        }
+
+        TransactionLog reopened = open(100);
+        assertEquals(4, reopened.size());
+
+        append(reopened, 4, 6);
+        reopened.flush();
+
+        assertRun(5, 6, open(100).read(0, 10));
+    }
+
+    @Test
+    void dropsTheOldestSegments() throws IOException {
+        TransactionLog log = open(2);
+        for (int batch = 0; batch < 4; batch++) {
+            append(log, batch * 5L, batch * 5L + 5);
+            log.flush();
+        }
+
+        // Segments 0 and 5 are gone; 10 and 15 plus the ring are left
+        assertTrue(!new File(folder, "0.gz").exists() && !new File(folder, "5.idx").exists());
+        assertEquals(10, log.size());
+
+        List<Transaction> all = log.read(0, 100);
+        assertNotNull(all);
+        assertRun(19, 10, all);
+    }
+}